@@ -0,0 +1,75 @@
+package com.certidevs.benchmark;
+
+import com.certidevs.Main1;
+import com.certidevs.dto.ProductSummary;
+import com.certidevs.entity.Product;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.r2dbc.core.DatabaseClient;
+
+import java.time.LocalDateTime;
+
+/**
+ * Datos de prueba para los benchmarks
+ */
+final class BenchmarkData {
+
+    private BenchmarkData() {
+    }
+
+    static Product product(long id, int manufacturers) {
+        return Product.builder()
+                .id(id)
+                .title("Product " + id)
+                .price(10.0 + id)
+                .quantity((int) (id % 100))
+                .active(id % 2 == 0)
+                .creationDate(LocalDateTime.of(2024, 1, 1, 0, 0))
+                .manufacturerId(id % manufacturers + 1)
+                .build();
+    }
+
+    static ProductSummary summary(long id) {
+        return new ProductSummary(id, "PRODUCT " + id, 10.0 + id, (int) (id % 100), id % 2 == 0);
+    }
+
+    /**
+     * Aplicación completa sin servidor web sobre una base de datos H2 en memoria propia (database):
+     * ProductService, ProductHandler y los repositorios son los beans reales, con todas sus dependencias.
+     * Los argumentos tienen prioridad sobre application.properties (también el de src/test/resources).
+     */
+    static ConfigurableApplicationContext application(String database) {
+        return SpringApplication.run(Main1.class,
+                "--spring.main.web-application-type=none",
+                "--spring.main.banner-mode=off",
+                "--spring.r2dbc.url=r2dbc:h2:mem:///" + database + ";DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+                "--products.query-plan-check.enabled=false",
+                "--logging.level.root=WARN",
+                "--logging.level.org.springframework.r2dbc=WARN");
+    }
+
+    /**
+     * Inserta count productos (mitad activos) repartidos entre manufacturers fabricantes con INSERT ... SELECT,
+     * para no tardar más en preparar los datos que en medir
+     */
+    static void insertProducts(ConfigurableApplicationContext context, int count, int manufacturers) {
+        var databaseClient = context.getBean(DatabaseClient.class);
+        databaseClient.sql("""
+                INSERT INTO manufacturer (name, country, foundation_year)
+                SELECT 'Manufacturer ' || X, 'Spain', 2000 FROM SYSTEM_RANGE(1, :manufacturers)
+                """)
+                .bind("manufacturers", manufacturers)
+                .then()
+                .block();
+        databaseClient.sql("""
+                INSERT INTO product (title, price, quantity, active, creation_date, manufacturer_id)
+                SELECT 'Product ' || X, 10.0 + X, MOD(X, 100), MOD(X, 2) = 0, CURRENT_TIMESTAMP,
+                    (SELECT MIN(id) FROM manufacturer) + MOD(X, :manufacturers)
+                FROM SYSTEM_RANGE(1, :count)
+                """)
+                .bind("manufacturers", manufacturers)
+                .bind("count", count)
+                .then()
+                .block();
+    }
+}
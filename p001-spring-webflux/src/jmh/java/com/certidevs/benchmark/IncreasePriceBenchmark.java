@@ -0,0 +1,79 @@
+package com.certidevs.benchmark;
+
+import com.certidevs.repository.ProductRepository;
+import com.certidevs.service.ProductService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.r2dbc.core.DatabaseClient;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Subida de precios de los productos activos en H2 en memoria:
+ * collectList + saveAll (versión anterior, un UPDATE por producto) frente a un solo UPDATE en base de datos,
+ * UPDATE por rangos de 10.000 ids y UPDATE que devuelve las filas modificadas
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class IncreasePriceBenchmark {
+
+    @Param({"10000", "100000"})
+    int products;
+
+    ConfigurableApplicationContext application;
+    ProductRepository productRepository;
+    ProductService productService;
+    DatabaseClient databaseClient;
+
+    @Setup
+    public void setUp() {
+        application = BenchmarkData.application("increasePrice");
+        BenchmarkData.insertProducts(application, products, 10);
+        productRepository = application.getBean(ProductRepository.class);
+        productService = application.getBean(ProductService.class);
+        databaseClient = application.getBean(DatabaseClient.class);
+    }
+
+    // cada operación sube los precios un 10%: se vuelven a poner a 10 en cada iteración
+    @Setup(Level.Iteration)
+    public void resetPrices() {
+        databaseClient.sql("UPDATE product SET price = 10.0").then().block();
+    }
+
+    @TearDown
+    public void tearDown() {
+        application.close();
+    }
+
+    @Benchmark
+    public Long collectListSaveAll() {
+        return productRepository.findByActiveTrue()
+                .map(p -> {
+                    double price = p.getPrice() != null ? p.getPrice() : 0.0;
+                    p.setPrice(price * 1.1);
+                    return p;
+                }).collectList()
+                .flatMapMany(productRepository::saveAll)
+                .count()
+                .block();
+    }
+
+    @Benchmark
+    public Integer update() {
+        return productService.increasePriceOfActiveProductsCount(10.0).block();
+    }
+
+    @Benchmark
+    public Integer updateChunked() {
+        return productService.increasePriceOfActiveProductsChunked(10.0, 10_000).block();
+    }
+
+    @Benchmark
+    public Long updateReturning() {
+        return productService.increasePriceOfActiveProducts(10.0).count().block();
+    }
+}
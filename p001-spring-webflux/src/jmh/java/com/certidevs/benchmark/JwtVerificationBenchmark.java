@@ -0,0 +1,69 @@
+package com.certidevs.benchmark;
+
+import com.certidevs.security.Jwt;
+import com.certidevs.security.JwtKeys;
+import com.certidevs.security.JwtVerifier;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import java.security.KeyPair;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coste por petición de verificar un token JWT RS256 con clave local:
+ * verificación completa (parseo + firma RSA) frente a la caché de tokens verificados (hash SHA-256 + búsqueda)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtVerificationBenchmark {
+
+    DisposableServer jwksServer;
+    JwtVerifier verifier;
+    String token;
+
+    @Setup
+    public void setUp() {
+        KeyPair key = JwtKeys.keyPair();
+        jwksServer = HttpServer.create()
+                .port(0)
+                .route(routes -> routes.get("/jwks.json", (request, response) -> response
+                        .header("Content-Type", "application/json")
+                        .sendString(Mono.just(JwtKeys.jwks(Map.of("k1", key))))))
+                .bindNow();
+
+        verifier = new JwtVerifier(WebClient.create("http://localhost:" + jwksServer.port() + "/jwks.json"),
+                "", Duration.ofSeconds(30), Duration.ofHours(1), Duration.ofSeconds(10), 10_000);
+        token = JwtKeys.sign(key, "k1", Map.of(
+                "sub", "user1",
+                "exp", Instant.now().plus(Duration.ofHours(1)).getEpochSecond(),
+                "scope", "products:read products:write"));
+        // primera verificación: descarga el JWK set y guarda el token en caché
+        verifier.verify(token).block();
+    }
+
+    @TearDown
+    public void tearDown() {
+        verifier.close();
+        jwksServer.disposeNow();
+    }
+
+    @Benchmark
+    public Jwt uncached() {
+        return verifier.verifyUncached(token).block();
+    }
+
+    @Benchmark
+    public Jwt cached() {
+        return verifier.verify(token).block();
+    }
+}
@@ -0,0 +1,104 @@
+package com.certidevs.benchmark;
+
+import com.certidevs.entity.Manufacturer;
+import com.certidevs.entity.Product;
+import com.certidevs.service.ManufacturerBatchLoader;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Enriquecimiento de productos con su fabricante contra un servidor HTTP local que simula el microservicio:
+ * una petición GET por producto frente a ManufacturerBatchLoader (lotes + peticiones compartidas)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ManufacturerEnrichmentBenchmark {
+
+    @Param({"200"})
+    int products;
+
+    @Param({"10"})
+    int manufacturers;
+
+    DisposableServer server;
+    WebClient manufacturerClient;
+    ManufacturerBatchLoader loader;
+
+    @Setup
+    public void setUp() {
+        server = HttpServer.create()
+                .port(0)
+                .route(routes -> routes
+                        .get("/manufacturers/{id}", (request, response) -> response
+                                .header("Content-Type", "application/json")
+                                .sendString(Mono.just(json(request.param("id")))))
+                        .post("/manufacturers/search", (request, response) -> response
+                                .header("Content-Type", "application/json")
+                                .sendString(request.receive().aggregate().asString()
+                                        .map(body -> Arrays.stream(body.replaceAll("[\\[\\]\\s]", "").split(","))
+                                                .map(ManufacturerEnrichmentBenchmark::json)
+                                                .collect(Collectors.joining(",", "[", "]"))))))
+                .bindNow();
+
+        manufacturerClient = WebClient.create("http://localhost:" + server.port());
+        loader = new ManufacturerBatchLoader(manufacturerClient);
+    }
+
+    @TearDown
+    public void tearDown() {
+        loader.close();
+        server.disposeNow();
+    }
+
+    @Benchmark
+    public List<Product> perProductGet() {
+        return products()
+                .flatMap(product -> manufacturerClient.get()
+                        .uri("/manufacturers/{id}", product.getManufacturerId())
+                        .retrieve()
+                        .bodyToMono(Manufacturer.class)
+                        .map(manufacturer -> {
+                            product.setManufacturer(manufacturer);
+                            return product;
+                        })
+                        .defaultIfEmpty(product))
+                .collectList()
+                .block();
+    }
+
+    // directamente con el loader: findAllWithManufacturer pasa antes por EnrichmentCache y mediría aciertos de caché
+    @Benchmark
+    public List<Product> batchLoader() {
+        return products()
+                .flatMap(product -> loader.load(product.getManufacturerId())
+                        .map(manufacturer -> {
+                            product.setManufacturer(manufacturer);
+                            return product;
+                        })
+                        .defaultIfEmpty(product))
+                .collectList()
+                .block();
+    }
+
+    // productos en memoria: se mide el enriquecimiento, no la lectura de base de datos
+    private Flux<Product> products() {
+        return Flux.range(1, products).map(id -> BenchmarkData.product(id, manufacturers));
+    }
+
+    private static String json(String id) {
+        return "{\"id\":" + id + ",\"name\":\"Manufacturer " + id + "\",\"country\":\"Spain\",\"foundationYear\":2000}";
+    }
+}
@@ -0,0 +1,99 @@
+package com.certidevs.benchmark;
+
+import com.certidevs.entity.Manufacturer;
+import com.certidevs.repository.ManufacturerRepository;
+import com.certidevs.repository.ManufacturerRepositoryCustomImpl;
+import com.certidevs.repository.ProductRepository;
+import com.certidevs.repository.ProductRepositoryCustomImpl;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.spi.ConnectionFactories;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.data.r2dbc.repository.support.R2dbcRepositoryFactory;
+import org.springframework.data.repository.core.support.RepositoryComposition;
+import org.springframework.r2dbc.core.DatabaseClient;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fabricantes con sus productos desde H2 en memoria con pool de conexiones (r2dbc:pool):
+ * una consulta de productos por fabricante (N+1) frente a ManufacturerRepository.findAllWithProducts (un JOIN)
+ *
+ * MANUFACTURERS fabricantes con PRODUCTS_PER_MANUFACTURER productos cada uno
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ManufacturerWithProductsBenchmark {
+
+    static final int MANUFACTURERS = 200;
+    static final int PRODUCTS_PER_MANUFACTURER = 20;
+
+    ConnectionPool connectionPool;
+    ManufacturerRepository manufacturerRepository;
+    ProductRepository productRepository;
+
+    @Setup
+    public void setUp() {
+        connectionPool = (ConnectionPool) ConnectionFactories.get("r2dbc:pool:h2:mem:///manufacturers;DB_CLOSE_DELAY=-1");
+        var databaseClient = DatabaseClient.create(connectionPool);
+        databaseClient.sql("""
+                CREATE TABLE IF NOT EXISTS manufacturer (
+                    id BIGINT PRIMARY KEY AUTO_INCREMENT, name VARCHAR(255) NOT NULL, country VARCHAR(255), foundation_year INT)
+                """).then().block();
+        databaseClient.sql("""
+                CREATE TABLE IF NOT EXISTS product (
+                    id BIGINT PRIMARY KEY AUTO_INCREMENT, title VARCHAR(255) NOT NULL UNIQUE, price DOUBLE,
+                    quantity INT, active BOOLEAN, creation_date TIMESTAMP, manufacturer_id BIGINT,
+                    version BIGINT NOT NULL DEFAULT 0, last_modified TIMESTAMP)
+                """).then().block();
+        databaseClient.sql("CREATE INDEX IF NOT EXISTS idx_product_manufacturer_id ON product (manufacturer_id, id)").then().block();
+        databaseClient.sql("DELETE FROM product").then().block();
+        databaseClient.sql("DELETE FROM manufacturer").then().block();
+        databaseClient.sql("""
+                INSERT INTO manufacturer (id, name, country, foundation_year)
+                SELECT X, 'Manufacturer ' || X, 'Spain', 2000 FROM SYSTEM_RANGE(1, %d)
+                """.formatted(MANUFACTURERS)).then().block();
+        databaseClient.sql("""
+                INSERT INTO product (title, price, quantity, active, creation_date, manufacturer_id)
+                SELECT 'Product ' || X, 10.0 + X, MOD(X, 100), TRUE, CURRENT_TIMESTAMP, MOD(X, %d) + 1
+                FROM SYSTEM_RANGE(1, %d)
+                """.formatted(MANUFACTURERS, MANUFACTURERS * PRODUCTS_PER_MANUFACTURER)).then().block();
+
+        var factory = new R2dbcRepositoryFactory(new R2dbcEntityTemplate(connectionPool));
+        manufacturerRepository = factory.getRepository(ManufacturerRepository.class,
+                RepositoryComposition.RepositoryFragments.just(new ManufacturerRepositoryCustomImpl(databaseClient)));
+        productRepository = factory.getRepository(ProductRepository.class,
+                RepositoryComposition.RepositoryFragments.just(new ProductRepositoryCustomImpl(databaseClient)));
+    }
+
+    @TearDown
+    public void tearDown() {
+        connectionPool.dispose();
+    }
+
+    @Benchmark
+    public Long nPlusOne() {
+        return manufacturerRepository.findAll()
+                .concatMap(manufacturer -> productRepository.findByManufacturerId(manufacturer.getId())
+                        .collectList()
+                        .map(products -> {
+                            manufacturer.setProducts(products);
+                            return manufacturer;
+                        }))
+                .map(Manufacturer::getProducts)
+                .count()
+                .block();
+    }
+
+    @Benchmark
+    public Long join() {
+        return manufacturerRepository.findAllWithProducts(500)
+                .map(Manufacturer::getProducts)
+                .count()
+                .block();
+    }
+}
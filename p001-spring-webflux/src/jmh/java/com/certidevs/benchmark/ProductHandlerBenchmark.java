@@ -0,0 +1,85 @@
+package com.certidevs.benchmark;
+
+import com.certidevs.handler.ProductHandler;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.codec.HttpMessageWriter;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.reactive.function.server.HandlerStrategies;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.reactive.result.view.ViewResolver;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Montaje completo de una página en ProductHandler: consulta a H2, DTO de paginación y escritura JSON de la respuesta.
+ * Compara la paginación con skip/take sobre findAll frente a la paginación keyset con cursor.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductHandlerBenchmark {
+
+    @Param({"1000", "10000"})
+    int products;
+
+    ProductHandler handler;
+    HandlerStrategies strategies = HandlerStrategies.withDefaults();
+    ServerResponse.Context context = new ServerResponse.Context() {
+        @Override
+        public List<HttpMessageWriter<?>> messageWriters() {
+            return strategies.messageWriters();
+        }
+
+        @Override
+        public List<ViewResolver> viewResolvers() {
+            return strategies.viewResolvers();
+        }
+    };
+    ConfigurableApplicationContext application;
+    String lastPageCursor;
+
+    @Setup
+    public void setUp() {
+        application = BenchmarkData.application("productHandler");
+        BenchmarkData.insertProducts(application, products, 10);
+        handler = application.getBean(ProductHandler.class);
+        // cursor opaco del último bloque de 20 productos (id en Base64)
+        lastPageCursor = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(String.valueOf(products - 20).getBytes(StandardCharsets.UTF_8));
+    }
+
+    @TearDown
+    public void tearDown() {
+        application.close();
+    }
+
+    @Benchmark
+    public MockServerWebExchange lastPageOffset() {
+        return write("/api/route/products/paginated?size=20&page=" + products / 20, handler::findAllPaginated);
+    }
+
+    @Benchmark
+    public MockServerWebExchange lastPageCursor() {
+        return write("/api/route/products/paginated-cursor?size=20&cursor=" + lastPageCursor, handler::findAllPaginatedByCursor);
+    }
+
+    private MockServerWebExchange write(String uri, Function<ServerRequest, Mono<ServerResponse>> handlerFunction) {
+        var exchange = MockServerWebExchange.from(MockServerHttpRequest.get(uri));
+        var request = ServerRequest.create(exchange, strategies.messageReaders());
+        handlerFunction.apply(request)
+                .flatMap(response -> response.writeTo(exchange, context))
+                .block();
+        return exchange;
+    }
+}
@@ -0,0 +1,53 @@
+package com.certidevs.benchmark;
+
+import com.certidevs.dto.ProductSummary;
+import com.certidevs.entity.Product;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+/**
+ * Serialización JSON de Product con un ObjectMapper configurado como el de Spring Boot,
+ * página de 100 entidades frente a la misma página con la proyección ProductSummary de los listados
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductJsonBenchmark {
+
+    ObjectMapper mapper;
+    Product product;
+    List<Product> page;
+    List<ProductSummary> summaryPage;
+
+    @Setup
+    public void setUp() {
+        mapper = Jackson2ObjectMapperBuilder.json().build();
+        product = BenchmarkData.product(1, 10);
+        page = LongStream.rangeClosed(1, 100).mapToObj(id -> BenchmarkData.product(id, 10)).toList();
+        summaryPage = LongStream.rangeClosed(1, 100).mapToObj(BenchmarkData::summary).toList();
+    }
+
+    @Benchmark
+    public byte[] serializeProduct() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(product);
+    }
+
+    @Benchmark
+    public byte[] serializePage() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public byte[] serializeSummaryPage() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(summaryPage);
+    }
+}
@@ -0,0 +1,81 @@
+package com.certidevs.benchmark;
+
+import com.certidevs.entity.Product;
+import com.certidevs.repository.ManufacturerRepository;
+import com.certidevs.repository.ProductRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.r2dbc.core.DatabaseClient;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Consultas de ProductRepository sobre H2 en memoria con y sin los índices de schema.sql (indexes)
+ *
+ * Cada combinación de parámetros va en su propio fork, sin índices se borran una vez tras cargar los datos
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductQueryBenchmark {
+
+    @Param({"1000000"})
+    int products;
+
+    @Param({"true", "false"})
+    boolean indexes;
+
+    ConfigurableApplicationContext context;
+    ProductRepository productRepository;
+    Long manufacturerId;
+    String title;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkData.application("productQuery");
+        BenchmarkData.insertProducts(context, products, 100);
+        productRepository = context.getBean(ProductRepository.class);
+        manufacturerId = context.getBean(ManufacturerRepository.class).findAll().blockFirst().getId();
+        title = "Product " + products / 2;
+        if (!indexes) {
+            var databaseClient = context.getBean(DatabaseClient.class);
+            databaseClient.sql("DROP INDEX IF EXISTS idx_product_manufacturer_id").then()
+                    .then(databaseClient.sql("DROP INDEX IF EXISTS idx_product_active").then())
+                    .then(databaseClient.sql("DROP INDEX IF EXISTS idx_product_quantity").then())
+                    .block();
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Long findByManufacturerId() {
+        return productRepository.findByManufacturerId(manufacturerId).count().block();
+    }
+
+    @Benchmark
+    public Boolean existsByManufacturerId() {
+        return productRepository.existsByManufacturerId(manufacturerId).block();
+    }
+
+    @Benchmark
+    public Long findByActiveFalse() {
+        return productRepository.findByActiveFalse().count().block();
+    }
+
+    @Benchmark
+    public Long findByQuantityLessThan() {
+        return productRepository.findByQuantityLessThan(5).count().block();
+    }
+
+    @Benchmark
+    public Product findByTitle() {
+        return productRepository.findByTitle(title).block();
+    }
+}
@@ -0,0 +1,71 @@
+package com.certidevs.benchmark;
+
+import com.certidevs.repository.ProductRepository;
+import com.certidevs.repository.ProductRepositoryCustomImpl;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.data.r2dbc.repository.support.R2dbcRepositoryFactory;
+import org.springframework.data.repository.core.support.RepositoryComposition;
+import org.springframework.r2dbc.core.DatabaseClient;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lectura de productos desde H2 en memoria a través de ProductRepository:
+ * entidad Product completa (como findAll) frente a la proyección ProductSummary de los listados.
+ *
+ * Resultados por fila (OperationsPerInvocation): gc.alloc.rate.norm son los bytes reservados por cada fila leída
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@OperationsPerInvocation(ProductRowMappingBenchmark.ROWS)
+public class ProductRowMappingBenchmark {
+
+    static final int ROWS = 1000;
+
+    ProductRepository productRepository;
+
+    @Setup
+    public void setUp() {
+        ConnectionFactory connectionFactory = ConnectionFactories.get("r2dbc:h2:mem:///rowmapping;DB_CLOSE_DELAY=-1");
+        var databaseClient = DatabaseClient.create(connectionFactory);
+        databaseClient.sql("""
+                CREATE TABLE IF NOT EXISTS product (
+                    id BIGINT PRIMARY KEY AUTO_INCREMENT, title VARCHAR(255) NOT NULL UNIQUE, price DOUBLE,
+                    quantity INT, active BOOLEAN, creation_date TIMESTAMP, manufacturer_id BIGINT,
+                    version BIGINT NOT NULL DEFAULT 0, last_modified TIMESTAMP)
+                """).then().block();
+        databaseClient.sql("DELETE FROM product").then().block();
+        databaseClient.sql("""
+                INSERT INTO product (title, price, quantity, active, creation_date, manufacturer_id)
+                SELECT 'Product ' || X, 10.0 + X, MOD(X, 100), MOD(X, 2) = 0, CURRENT_TIMESTAMP, MOD(X, 10) + 1
+                FROM SYSTEM_RANGE(1, %d)
+                """.formatted(ROWS)).then().block();
+
+        productRepository = new R2dbcRepositoryFactory(new R2dbcEntityTemplate(connectionFactory))
+                .getRepository(ProductRepository.class,
+                        RepositoryComposition.RepositoryFragments.just(new ProductRepositoryCustomImpl(databaseClient)));
+    }
+
+    @Benchmark
+    public Long entities() {
+        return productRepository.findAll()
+                .map(product -> {
+                    product.setTitle(product.getTitle().toUpperCase());
+                    return product;
+                })
+                .count()
+                .block();
+    }
+
+    @Benchmark
+    public Long summaries() {
+        return productRepository.findAllSummaries().count().block();
+    }
+}
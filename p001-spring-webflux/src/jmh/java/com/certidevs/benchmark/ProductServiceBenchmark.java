@@ -0,0 +1,51 @@
+package com.certidevs.benchmark;
+
+import com.certidevs.dto.ProductSummary;
+import com.certidevs.entity.Product;
+import com.certidevs.service.ProductService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lectura de todos los productos con ProductService.findAll (entidades y título en mayúsculas en Java)
+ * frente a findAllSummaries (proyección, UPPER en la consulta) sobre H2 en memoria
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductServiceBenchmark {
+
+    @Param({"100", "10000"})
+    int products;
+
+    ConfigurableApplicationContext context;
+    ProductService productService;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkData.application("productService");
+        BenchmarkData.insertProducts(context, products, 10);
+        productService = context.getBean(ProductService.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<Product> findAll() {
+        return productService.findAll().collectList().block();
+    }
+
+    @Benchmark
+    public List<ProductSummary> findAllSummaries() {
+        return productService.findAllSummaries().collectList().block();
+    }
+}
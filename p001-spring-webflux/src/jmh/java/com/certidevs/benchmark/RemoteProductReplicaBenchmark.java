@@ -0,0 +1,81 @@
+package com.certidevs.benchmark;
+
+import com.certidevs.entity.Product;
+import com.certidevs.service.RemoteProductReplica;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lectura de un producto remoto contra un servidor HTTP local que simula el servicio de productos:
+ * GET por cada lectura frente a RemoteProductReplica ya cargada con el volcado (lectura local + deserialización)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RemoteProductReplicaBenchmark {
+
+    static final int PRODUCTS = 10_000;
+
+    DisposableServer server;
+    WebClient productClient;
+    RemoteProductReplica replica;
+
+    @Setup
+    public void setUp() {
+        server = HttpServer.create()
+                .port(0)
+                .route(routes -> routes
+                        .get("/products/dump", (request, response) -> response.header("Content-Type", "application/x-ndjson")
+                                .sendString(Flux.range(1, PRODUCTS).map(id -> json(id) + "\n")))
+                        .get("/products/{id}", (request, response) -> response.header("Content-Type", "application/json")
+                                .sendString(Mono.just(json(Long.parseLong(request.param("id")))))))
+                .bindNow();
+
+        productClient = WebClient.create("http://localhost:" + server.port());
+        replica = new RemoteProductReplica(productClient, JsonMapper.builder().findAndAddModules().build(),
+                new SimpleMeterRegistry(), DataSize.ofMegabytes(64), Duration.ofHours(1), true, false);
+        replica.warmUp().block();
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.disposeNow();
+    }
+
+    @Benchmark
+    public Product remoteGet() {
+        return productClient.get()
+                .uri("/products/{id}", randomId())
+                .retrieve()
+                .bodyToMono(Product.class)
+                .block();
+    }
+
+    @Benchmark
+    public Product replica() {
+        return replica.findById(randomId()).block();
+    }
+
+    private static long randomId() {
+        return ThreadLocalRandom.current().nextLong(1, PRODUCTS + 1);
+    }
+
+    private static String json(long id) {
+        return "{\"id\":" + id + ",\"title\":\"Product " + id + "\",\"price\":" + (10.0 + id)
+                + ",\"quantity\":5,\"active\":true,\"creationDate\":\"2024-01-01T10:00:00\",\"manufacturerId\":" + (id % 10 + 1) + "}";
+    }
+}
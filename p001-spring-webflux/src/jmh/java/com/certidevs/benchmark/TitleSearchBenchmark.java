@@ -0,0 +1,94 @@
+package com.certidevs.benchmark;
+
+import com.certidevs.dto.ProductSearchHit;
+import com.certidevs.entity.Product;
+import com.certidevs.service.TitleSearchIndex;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Búsqueda en TitleSearchIndex con PRODUCTS títulos de 3 palabras de un vocabulario de VOCABULARY palabras:
+ * palabra completa, prefijo de 2 letras, prefijo de 1 letra (peor caso, limitado por max-candidates),
+ * palabra con una errata, dos términos (palabra + prefijo) y dos prefijos de 1 letra (peor caso con varios términos:
+ * se comprueban max-candidates productos)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx3g")
+public class TitleSearchBenchmark {
+
+    static final int PRODUCTS = 1_000_000;
+    static final int VOCABULARY = 50_000;
+    static final int WORDS_PER_TITLE = 3;
+
+    String[] vocabulary;
+    String[][] titles;
+    TitleSearchIndex index;
+
+    @Setup
+    public void setUp() {
+        var random = new Random(42);
+        vocabulary = new String[VOCABULARY];
+        for (int i = 0; i < VOCABULARY; i++) {
+            var word = new StringBuilder();
+            int length = 5 + random.nextInt(6);
+            for (int j = 0; j < length; j++)
+                word.append((char) ('a' + random.nextInt(26)));
+            vocabulary[i] = word.toString();
+        }
+
+        index = new TitleSearchIndex(null, 2_000);
+        titles = new String[PRODUCTS][];
+        for (int id = 1; id <= PRODUCTS; id++) {
+            String[] words = new String[WORDS_PER_TITLE];
+            for (int j = 0; j < WORDS_PER_TITLE; j++)
+                words[j] = vocabulary[random.nextInt(VOCABULARY)];
+            titles[id - 1] = words;
+            index.record(Product.builder().id((long) id).title(String.join(" ", words)).build());
+        }
+    }
+
+    @Benchmark
+    public List<ProductSearchHit> word() {
+        return index.search(randomWord(), 10);
+    }
+
+    @Benchmark
+    public List<ProductSearchHit> prefix2() {
+        return index.search(randomWord().substring(0, 2), 10);
+    }
+
+    @Benchmark
+    public List<ProductSearchHit> prefix1() {
+        return index.search(randomWord().substring(0, 1), 10);
+    }
+
+    @Benchmark
+    public List<ProductSearchHit> typo() {
+        char[] word = randomWord().toCharArray();
+        word[word.length / 2] = word[word.length / 2] == 'x' ? 'y' : 'x';
+        return index.search(new String(word), 10);
+    }
+
+    @Benchmark
+    public List<ProductSearchHit> wordAndPrefix() {
+        String[] title = titles[ThreadLocalRandom.current().nextInt(PRODUCTS)];
+        return index.search(title[0] + " " + title[1].substring(0, 3), 10);
+    }
+
+    @Benchmark
+    public List<ProductSearchHit> twoPrefixes1() {
+        return index.search(randomWord().substring(0, 1) + " " + randomWord().substring(0, 1), 10);
+    }
+
+    private String randomWord() {
+        return vocabulary[ThreadLocalRandom.current().nextInt(VOCABULARY)];
+    }
+}
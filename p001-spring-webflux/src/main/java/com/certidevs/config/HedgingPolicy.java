@@ -0,0 +1,155 @@
+package com.certidevs.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Peticiones con cobertura (hedged requests) contra un microservicio
+ *
+ * Si la llamada no ha respondido pasado el percentil configurado de su latencia (p95 por defecto)
+ * se lanza una segunda llamada igual y se usa la primera respuesta que llegue, la otra se cancela.
+ * Así un nodo lento no arrastra el p99 de toda la respuesta.
+ *
+ * * El retardo se calcula con la latencia de las llamadas recientes (timer products.hedge.latency)
+ *   y se limita entre min-delay y max-delay. Con menos de min-samples llamadas se usa max-delay
+ * * Presupuesto: cada llamada suma budget (ej: 0.1) a una bolsa de como mucho budget-burst llamadas extra,
+ *   cada segunda llamada gasta 1. Como mucho un 10% más de carga sobre el microservicio
+ * * Solo se cubre la latencia, no los errores: si la primera llamada falla el error se propaga
+ *   y los errores de la segunda se ignoran
+ * * Métricas products.hedge.requests con event=fired (segunda llamada lanzada), won (ganó la segunda)
+ *   y rejected (sin presupuesto)
+ *
+ * Desactivada por defecto, se configura por microservicio con upstream.{nombre}.hedge.* (UpstreamClientFactory).
+ * Solo para llamadas idempotentes (GET).
+ */
+public class HedgingPolicy {
+
+    private static final long TOKEN = 1000;
+
+    private final boolean enabled;
+    private final double percentile;
+    private final Duration minDelay;
+    private final Duration maxDelay;
+    private final long minSamples;
+    private final long tokensPerCall;
+    private final long maxTokens;
+
+    private final Timer latency;
+    private final Counter fired;
+    private final Counter won;
+    private final Counter rejected;
+
+    // presupuesto en milésimas de llamada extra
+    private final AtomicLong tokens;
+    private volatile long delayNanos;
+    private volatile long delayComputedAt;
+
+    public HedgingPolicy(String upstream, MeterRegistry meterRegistry, boolean enabled, double percentile,
+                         Duration minDelay, Duration maxDelay, long minSamples, double budget, int budgetBurst) {
+        this.enabled = enabled;
+        this.percentile = percentile;
+        this.minDelay = minDelay;
+        this.maxDelay = maxDelay;
+        this.minSamples = minSamples;
+        this.tokensPerCall = Math.round(budget * TOKEN);
+        this.maxTokens = (long) budgetBurst * TOKEN;
+        this.tokens = new AtomicLong(maxTokens);
+        this.delayNanos = maxDelay.toNanos();
+
+        this.latency = Timer.builder("products.hedge.latency")
+                .description("Latencia de la primera llamada a cada microservicio, para el retardo de la segunda")
+                .tag("upstream", upstream)
+                .publishPercentiles(percentile)
+                .register(meterRegistry);
+        this.fired = counter(meterRegistry, upstream, "fired");
+        this.won = counter(meterRegistry, upstream, "won");
+        this.rejected = counter(meterRegistry, upstream, "rejected");
+    }
+
+    public static HedgingPolicy disabled(String upstream, MeterRegistry meterRegistry) {
+        return new HedgingPolicy(upstream, meterRegistry, false, 0.95,
+                Duration.ZERO, Duration.ZERO, 0, 0, 0);
+    }
+
+    /**
+     * Ejecuta la llamada y, si tarda más que el retardo actual y hay presupuesto, una segunda igual.
+     * La llamada se crea con call.get() cada vez, tiene que ser idempotente.
+     */
+    public <T> Mono<T> hedge(Supplier<Mono<T>> call) {
+        if (!enabled)
+            return Mono.defer(call);
+
+        return Mono.defer(() -> {
+            deposit();
+            long start = System.nanoTime();
+            Mono<T> primary = call.get()
+                    // también las canceladas porque ganó la segunda: sin ellas no se verían las llamadas lentas
+                    .doFinally(signal -> latency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+
+            Mono<T> secondary = Mono.delay(Duration.ofNanos(currentDelay()))
+                    .flatMap(tick -> {
+                        if (!withdraw()) {
+                            rejected.increment();
+                            return Mono.never();
+                        }
+                        fired.increment();
+                        return call.get()
+                                .doOnSuccess(value -> won.increment())
+                                .onErrorResume(e -> Mono.never());
+                    });
+
+            // la primera señal gana (valor, vacío o error de la primera llamada), la otra se cancela
+            return Mono.firstWithSignal(primary, secondary);
+        });
+    }
+
+    /**
+     * Retardo actual de la segunda llamada, recalculado como mucho una vez por segundo
+     */
+    long currentDelay() {
+        long now = System.nanoTime();
+        if (now - delayComputedAt < TimeUnit.SECONDS.toNanos(1))
+            return delayNanos;
+        delayComputedAt = now;
+
+        long delay = maxDelay.toNanos();
+        if (latency.count() >= minSamples) {
+            for (ValueAtPercentile value : latency.takeSnapshot().percentileValues()) {
+                if (value.percentile() == percentile)
+                    delay = Math.clamp((long) value.value(TimeUnit.NANOSECONDS), minDelay.toNanos(), maxDelay.toNanos());
+            }
+        }
+        delayNanos = delay;
+        return delay;
+    }
+
+    private void deposit() {
+        tokens.accumulateAndGet(tokensPerCall, (current, added) -> Math.min(maxTokens, current + added));
+    }
+
+    private boolean withdraw() {
+        long current;
+        do {
+            current = tokens.get();
+            if (current < TOKEN)
+                return false;
+        } while (!tokens.compareAndSet(current, current - TOKEN));
+        return true;
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, String upstream, String event) {
+        return Counter.builder("products.hedge.requests")
+                .description("Segundas llamadas a microservicios por latencia alta")
+                .tag("upstream", upstream)
+                .tag("event", event)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,89 @@
+package com.certidevs.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryMetadata;
+import io.r2dbc.spi.Wrapped;
+import lombok.extern.slf4j.Slf4j;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Mono;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ConnectionFactory que envuelve el pool de R2DBC para medir cuánto se tarda en obtener una conexión
+ *
+ * * r2dbc.pool.acquire: timer con histograma de la espera hasta obtener conexión del pool, etiquetado por outcome.
+ *   Si esta latencia sube es el pool (max-size pequeño, conexiones retenidas), si no sube es el SQL
+ * * Con logStatements registra en el log cada SQL ejecutado, sin cambiar el nivel de log de org.springframework.r2dbc
+ *
+ * Implementa Wrapped para que Spring Boot siga encontrando el ConnectionPool y publique sus métricas
+ * r2dbc.pool.acquired, r2dbc.pool.idle, r2dbc.pool.pending...
+ */
+@Slf4j
+public class InstrumentedConnectionFactory implements ConnectionFactory, Wrapped<ConnectionFactory> {
+
+    private final ConnectionFactory delegate;
+    private final boolean logStatements;
+    private final Timer acquireSuccess;
+    private final Timer acquireError;
+
+    public InstrumentedConnectionFactory(ConnectionFactory delegate, MeterRegistry meterRegistry, boolean logStatements) {
+        this.delegate = delegate;
+        this.logStatements = logStatements;
+        this.acquireSuccess = acquireTimer(meterRegistry, "success");
+        this.acquireError = acquireTimer(meterRegistry, "error");
+    }
+
+    private static Timer acquireTimer(MeterRegistry meterRegistry, String outcome) {
+        return Timer.builder("r2dbc.pool.acquire")
+                .description("Tiempo de espera hasta obtener una conexión del pool R2DBC")
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Publisher<? extends Connection> create() {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return Mono.<Connection>from(delegate.create())
+                    .doOnNext(connection -> acquireSuccess.record(System.nanoTime() - start, TimeUnit.NANOSECONDS))
+                    .doOnError(e -> acquireError.record(System.nanoTime() - start, TimeUnit.NANOSECONDS))
+                    .map(connection -> logStatements ? loggingConnection(connection) : connection);
+        });
+    }
+
+    @Override
+    public ConnectionFactoryMetadata getMetadata() {
+        return delegate.getMetadata();
+    }
+
+    @Override
+    public ConnectionFactory unwrap() {
+        return delegate;
+    }
+
+    // proxy de Connection que registra el SQL de createStatement y delega el resto de métodos
+    @SuppressWarnings("unchecked")
+    private static Connection loggingConnection(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(
+                InstrumentedConnectionFactory.class.getClassLoader(),
+                new Class<?>[]{Connection.class, Wrapped.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("unwrap") && method.getParameterCount() == 0)
+                        return connection;
+                    if (method.getName().equals("createStatement"))
+                        log.info("SQL: {}", args[0]);
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+}
@@ -0,0 +1,190 @@
+package com.certidevs.config;
+
+import com.certidevs.repository.ProductRepository;
+import com.certidevs.repository.ProductRepositoryCustomImpl;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryMetadata;
+import io.r2dbc.spi.Result;
+import io.r2dbc.spi.Statement;
+import io.r2dbc.spi.Wrapped;
+import lombok.extern.slf4j.Slf4j;
+import org.reactivestreams.Publisher;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.data.r2dbc.dialect.DialectResolver;
+import org.springframework.data.r2dbc.repository.support.R2dbcRepositoryFactory;
+import org.springframework.data.repository.core.support.RepositoryComposition.RepositoryFragments;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Comprobación al arrancar de los planes de ejecución de las consultas de ProductRepository
+ *
+ * Ejecuta cada método de consulta declarado en ProductRepository (derivados y @Query) sobre una copia del repositorio
+ * cuyas conexiones anteponen EXPLAIN al SQL que genera Spring Data, con los mismos parámetros enlazados.
+ * Así se comprueba el SQL real y no una copia a mano: no se ejecuta ninguna consulta ni modificación.
+ * Avisa en el log si la base de datos recorre la tabla completa (full scan) en lugar de usar un índice,
+ * por ejemplo si falta un índice de schema.sql.
+ *
+ * Se desactiva con products.query-plan-check.enabled=false
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "products.query-plan-check.enabled", havingValue = "true", matchIfMissing = true)
+public class ProductQueryPlanCheck {
+
+    private final ProductRepository explainRepository;
+
+    public record QueryPlan(String query, String plan, boolean fullScan) {
+    }
+
+    public ProductQueryPlanCheck(ConnectionFactory connectionFactory, R2dbcEntityTemplate template) {
+        var databaseClient = DatabaseClient.create(new ExplainConnectionFactory(connectionFactory));
+        var explainTemplate = new R2dbcEntityTemplate(databaseClient, DialectResolver.getDialect(connectionFactory),
+                template.getConverter());
+        this.explainRepository = new R2dbcRepositoryFactory(explainTemplate).getRepository(ProductRepository.class,
+                RepositoryFragments.just(new ProductRepositoryCustomImpl(databaseClient)));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void checkOnStartup() {
+        checkPlans()
+                .filter(QueryPlan::fullScan)
+                .subscribe(
+                        plan -> log.warn("ProductRepository.{} recorre la tabla completa, revisar índices: {}", plan.query(), plan.plan()),
+                        e -> log.warn("No se han podido comprobar los planes de ejecución", e));
+    }
+
+    public Flux<QueryPlan> checkPlans() {
+        List<Method> methods = Arrays.stream(ProductRepository.class.getDeclaredMethods())
+                .filter(method -> !method.isDefault() && !method.isSynthetic())
+                .sorted(Comparator.comparing(Method::getName))
+                .toList();
+        return Flux.fromIterable(methods).concatMap(this::explain);
+    }
+
+    // invoca el método con valores de ejemplo; ExplainConnectionFactory deja en plans el plan de cada sentencia
+    private Mono<QueryPlan> explain(Method method) {
+        Queue<String> plans = new ConcurrentLinkedQueue<>();
+        return Mono.defer(() -> Flux.from(invoke(method)).then())
+                .contextWrite(context -> context.put(ExplainConnectionFactory.PLANS, plans))
+                .then(Mono.fromSupplier(() -> {
+                    String plan = String.join("\n", plans);
+                    return new QueryPlan(method.getName(), plan, isFullScan(plan));
+                }));
+    }
+
+    private Publisher<?> invoke(Method method) {
+        Object[] args = Arrays.stream(method.getParameterTypes()).map(ProductQueryPlanCheck::sampleValue).toArray();
+        try {
+            return (Publisher<?>) method.invoke(explainRepository, args);
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            return Mono.error(e instanceof InvocationTargetException ite ? ite.getCause() : e);
+        }
+    }
+
+    private static Object sampleValue(Class<?> type) {
+        if (type == Long.class) return 1L;
+        if (type == Integer.class) return 10;
+        if (type == Double.class) return 1.0;
+        if (type == String.class) return "x";
+        if (type == Boolean.class) return Boolean.TRUE;
+        if (Iterable.class.isAssignableFrom(type)) return List.of("x");
+        throw new IllegalArgumentException("Sin valor de ejemplo para " + type.getName());
+    }
+
+    // H2 indica en el plan el índice usado, "tableScan" significa que no usa ninguno
+    // (en PostgreSQL sería "Seq Scan" y en MySQL type=ALL)
+    static boolean isFullScan(String plan) {
+        return plan.contains("tableScan") || plan.contains("Seq Scan");
+    }
+
+    /**
+     * ConnectionFactory que cambia cada sentencia por su EXPLAIN: el plan se guarda en la cola PLANS del contexto
+     * de Reactor y al repositorio se le devuelve un resultado vacío
+     */
+    private record ExplainConnectionFactory(ConnectionFactory delegate) implements ConnectionFactory {
+
+        static final String PLANS = ExplainConnectionFactory.class.getName() + ".plans";
+
+        @Override
+        public Publisher<? extends Connection> create() {
+            return Mono.<Connection>from(delegate.create()).map(ExplainConnectionFactory::explainConnection);
+        }
+
+        @Override
+        public ConnectionFactoryMetadata getMetadata() {
+            return delegate.getMetadata();
+        }
+
+        private static Connection explainConnection(Connection connection) {
+            return proxy(Connection.class, connection, (method, args) -> method.getName().equals("createStatement")
+                    ? explainStatement(connection.createStatement("EXPLAIN " + args[0]))
+                    : method.invoke(connection, args));
+        }
+
+        private static Statement explainStatement(Statement statement) {
+            Statement[] self = new Statement[1];
+            self[0] = proxy(Statement.class, statement, (method, args) -> {
+                if (method.getName().equals("execute"))
+                    return Flux.deferContextual(context -> Flux.from(statement.execute())
+                            .concatMap(result -> result.map(row -> String.valueOf(row.get(0))))
+                            .doOnNext(context.<Queue<String>>get(PLANS)::add)
+                            .thenMany(Flux.just(emptyResult())));
+                Object value = method.invoke(statement, args);
+                // bind, add, fetchSize...: encadenan sobre el propio proxy
+                return value == statement ? self[0] : value;
+            });
+            return self[0];
+        }
+
+        private static Result emptyResult() {
+            Result[] self = new Result[1];
+            self[0] = proxy(Result.class, null, (method, args) -> switch (method.getName()) {
+                case "getRowsUpdated" -> Mono.just(0L);
+                case "filter" -> self[0];
+                default -> Flux.empty(); // map, flatMap
+            });
+            return self[0];
+        }
+
+        private interface Invocation {
+            Object invoke(Method method, Object[] args) throws Throwable;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> T proxy(Class<T> type, Object target, Invocation invocation) {
+            return (T) Proxy.newProxyInstance(ProductQueryPlanCheck.class.getClassLoader(),
+                    new Class<?>[]{type, Wrapped.class},
+                    (proxy, method, args) -> {
+                        if (method.getName().equals("unwrap") && method.getParameterCount() == 0)
+                            return target;
+                        if (method.getDeclaringClass() == Object.class)
+                            return switch (method.getName()) {
+                                case "equals" -> proxy == args[0];
+                                case "hashCode" -> System.identityHashCode(proxy);
+                                default -> type.getSimpleName() + " EXPLAIN";
+                            };
+                        try {
+                            return invocation.invoke(method, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                    });
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.certidevs.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.r2dbc.spi.ConnectionFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+
+/**
+ * El pool de conexiones lo crea Spring Boot a partir de las propiedades spring.r2dbc.pool.* (ver application.properties),
+ * aquí solo se envuelve con InstrumentedConnectionFactory para medir la espera de conexiones
+ * y activar el log de SQL con products.r2dbc.log-statements
+ *
+ * Los repositorios se crean con RepositoryTimingInterceptor para medir cada consulta por método
+ * (products.r2dbc.repository-metrics.enabled)
+ */
+@Configuration
+public class R2dbcConfig {
+
+    // static: los BeanPostProcessor se crean antes que el resto de beans de la configuración
+    @Bean
+    public static BeanPostProcessor instrumentedConnectionFactoryPostProcessor(
+            ObjectProvider<MeterRegistry> meterRegistry, Environment env) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof ConnectionFactory connectionFactory && !(bean instanceof InstrumentedConnectionFactory))
+                    return new InstrumentedConnectionFactory(connectionFactory, meterRegistry.getIfAvailable(() -> Metrics.globalRegistry),
+                            env.getProperty("products.r2dbc.log-statements", Boolean.class, false));
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    public static BeanPostProcessor repositoryTimingPostProcessor(
+            ObjectProvider<MeterRegistry> meterRegistry, Environment env) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                // antes de inicializar la factoría: afterPropertiesSet crea el proxy del repositorio
+                if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> factoryBean
+                        && env.getProperty("products.r2dbc.repository-metrics.enabled", Boolean.class, true))
+                    factoryBean.addRepositoryFactoryCustomizer(factory -> factory.addRepositoryProxyPostProcessor(
+                            (proxyFactory, repositoryInformation) -> proxyFactory.addAdvice(new RepositoryTimingInterceptor(
+                                    meterRegistry.getIfAvailable(() -> Metrics.globalRegistry),
+                                    repositoryInformation.getRepositoryInterface()))));
+                return bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,80 @@
+package com.certidevs.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Interceptor del proxy de cada repositorio que mide sus consultas en el timer products.r2dbc.query
+ * etiquetado por repositorio, método y outcome (success, error, cancelled)
+ *
+ * Los métodos devuelven Mono/Flux sin ejecutar nada: el tiempo se mide desde la suscripción hasta que termina
+ * el publisher, que es cuando se ejecuta el SQL y se leen las filas. Las métricas de repositorio de Spring Boot
+ * (spring.data.repository.invocations) miden la llamada al método, que en R2DBC solo construye el publisher.
+ */
+public class RepositoryTimingInterceptor implements MethodInterceptor {
+
+    private final MeterRegistry meterRegistry;
+    private final String repository;
+
+    // método -> timers por outcome (success, error, cancelled)
+    private final Map<Method, Timer[]> timers = new ConcurrentHashMap<>();
+
+    public RepositoryTimingInterceptor(MeterRegistry meterRegistry, Class<?> repositoryInterface) {
+        this.meterRegistry = meterRegistry;
+        this.repository = repositoryInterface.getSimpleName();
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        Method method = invocation.getMethod();
+        if (method.getDeclaringClass() == Object.class)
+            return invocation.proceed();
+
+        Object result = invocation.proceed();
+        Timer[] methodTimers = timers.computeIfAbsent(method, this::timersFor);
+        if (result instanceof Mono<?> mono)
+            return Mono.defer(() -> {
+                long start = System.nanoTime();
+                return mono.doFinally(signal -> record(methodTimers, signal, start));
+            });
+        if (result instanceof Flux<?> flux)
+            return Flux.defer(() -> {
+                long start = System.nanoTime();
+                return flux.doFinally(signal -> record(methodTimers, signal, start));
+            });
+        return result;
+    }
+
+    private Timer[] timersFor(Method method) {
+        String[] outcomes = {"success", "error", "cancelled"};
+        Timer[] byOutcome = new Timer[outcomes.length];
+        for (int i = 0; i < outcomes.length; i++)
+            byOutcome[i] = Timer.builder("products.r2dbc.query")
+                    .description("Latencia de las consultas de los repositorios desde la suscripción hasta la última fila")
+                    .tag("repository", repository)
+                    .tag("method", method.getName())
+                    .tag("outcome", outcomes[i])
+                    .publishPercentileHistogram()
+                    .register(meterRegistry);
+        return byOutcome;
+    }
+
+    private static void record(Timer[] methodTimers, SignalType signal, long start) {
+        int outcome = switch (signal) {
+            case ON_ERROR -> 1;
+            case CANCEL -> 2;
+            default -> 0;
+        };
+        methodTimers[outcome].record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,132 @@
+package com.certidevs.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.netty.channel.ChannelOption;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.core.env.Environment;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Crea los WebClient de los microservicios con un pool de conexiones Reactor Netty configurable
+ *
+ * Cada microservicio tiene su propio pool y se configura con propiedades upstream.{nombre}.*:
+ *
+ * * url
+ * * max-connections, pending-acquire-max-count, pending-acquire-timeout: tamaño del pool y cola de espera
+ * * max-idle-time, max-life-time: expulsión de conexiones inactivas o antiguas
+ * * connect-timeout, response-timeout
+ * * protocols: H2,HTTP11 negocia HTTP/2 por ALPN si el servidor lo soporta (solo https)
+ * * compress: pide respuestas gzip
+ * * max-in-memory-size: tamaño máximo de respuesta que se puede decodificar
+ *
+ * Circuit breaker y bulkhead por microservicio (UpstreamGuard), activos por defecto:
+ *
+ * * max-concurrent-calls: llamadas en curso como máximo
+ * * circuit-breaker.enabled, window-size, min-calls, failure-rate-threshold, slow-call-duration,
+ *   slow-call-rate-threshold, open-duration, half-open-calls
+ *
+ * Los pools publican en Micrometer las métricas reactor.netty.connection.provider.* (conexiones activas, inactivas, pendientes)
+ *
+ * hedgingPolicy crea la política de segundas llamadas por latencia (HedgingPolicy) con upstream.{nombre}.hedge.*:
+ * enabled, percentile, min-delay, max-delay, min-samples, budget, budget-burst
+ */
+@Slf4j
+@Component
+public class UpstreamClientFactory {
+
+    private final Environment env;
+    private final MeterRegistry meterRegistry;
+    private final List<ConnectionProvider> providers = new CopyOnWriteArrayList<>();
+
+    public UpstreamClientFactory(Environment env, ObjectProvider<MeterRegistry> meterRegistry) {
+        this.env = env;
+        this.meterRegistry = meterRegistry.getIfAvailable(() -> Metrics.globalRegistry);
+    }
+
+    public WebClient create(String name, String defaultUrl) {
+        String url = property(name, "url", String.class, defaultUrl);
+
+        var provider = ConnectionProvider.builder(name)
+                .maxConnections(property(name, "max-connections", Integer.class, 100))
+                .pendingAcquireMaxCount(property(name, "pending-acquire-max-count", Integer.class, 1000))
+                .pendingAcquireTimeout(property(name, "pending-acquire-timeout", Duration.class, Duration.ofSeconds(5)))
+                .maxIdleTime(property(name, "max-idle-time", Duration.class, Duration.ofSeconds(30)))
+                .maxLifeTime(property(name, "max-life-time", Duration.class, Duration.ofMinutes(5)))
+                .evictInBackground(Duration.ofSeconds(30))
+                .metrics(true)
+                .build();
+        providers.add(provider);
+
+        // HTTP/2 solo se puede negociar con TLS, con http se usa HTTP/1.1
+        HttpProtocol[] protocols = url.startsWith("https")
+                ? property(name, "protocols", HttpProtocol[].class, new HttpProtocol[]{HttpProtocol.H2, HttpProtocol.HTTP11})
+                : new HttpProtocol[]{HttpProtocol.HTTP11};
+
+        var httpClient = HttpClient.create(provider)
+                .protocol(protocols)
+                .compress(property(name, "compress", Boolean.class, true))
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS,
+                        (int) property(name, "connect-timeout", Duration.class, Duration.ofSeconds(2)).toMillis())
+                .responseTimeout(property(name, "response-timeout", Duration.class, Duration.ofSeconds(5)));
+
+        int maxInMemorySize = (int) property(name, "max-in-memory-size", DataSize.class, DataSize.ofMegabytes(2)).toBytes();
+
+        log.info("WebClient {} -> {} protocolos {}", name, url, Arrays.toString(protocols));
+        var builder = WebClient.builder()
+                .baseUrl(url)
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .codecs(codecs -> codecs.defaultCodecs().maxInMemorySize(maxInMemorySize));
+        if (property(name, "circuit-breaker.enabled", Boolean.class, true))
+            builder.filter(guard(name));
+        return builder.build();
+    }
+
+    private UpstreamGuard guard(String name) {
+        return new UpstreamGuard(name, meterRegistry,
+                property(name, "max-concurrent-calls", Integer.class, 64),
+                property(name, "circuit-breaker.window-size", Integer.class, 50),
+                property(name, "circuit-breaker.min-calls", Integer.class, 20),
+                property(name, "circuit-breaker.failure-rate-threshold", Double.class, 50.0),
+                property(name, "circuit-breaker.slow-call-duration", Duration.class, Duration.ofSeconds(2)),
+                property(name, "circuit-breaker.slow-call-rate-threshold", Double.class, 80.0),
+                property(name, "circuit-breaker.open-duration", Duration.class, Duration.ofSeconds(10)),
+                property(name, "circuit-breaker.half-open-calls", Integer.class, 3));
+    }
+
+    public HedgingPolicy hedgingPolicy(String name) {
+        if (!property(name, "hedge.enabled", Boolean.class, false))
+            return HedgingPolicy.disabled(name, meterRegistry);
+
+        log.info("Hedging activado para {}", name);
+        return new HedgingPolicy(name, meterRegistry, true,
+                property(name, "hedge.percentile", Double.class, 0.95),
+                property(name, "hedge.min-delay", Duration.class, Duration.ofMillis(10)),
+                property(name, "hedge.max-delay", Duration.class, Duration.ofSeconds(1)),
+                property(name, "hedge.min-samples", Long.class, 100L),
+                property(name, "hedge.budget", Double.class, 0.1),
+                property(name, "hedge.budget-burst", Integer.class, 10));
+    }
+
+    private <T> T property(String name, String key, Class<T> type, T defaultValue) {
+        return env.getProperty("upstream." + name + "." + key, type, defaultValue);
+    }
+
+    @PreDestroy
+    public void close() {
+        providers.forEach(ConnectionProvider::dispose);
+    }
+}
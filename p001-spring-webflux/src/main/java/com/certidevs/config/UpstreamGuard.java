@@ -0,0 +1,226 @@
+package com.certidevs.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Circuit breaker y bulkhead de un microservicio, como filtro de su WebClient (UpstreamClientFactory)
+ *
+ * Bulkhead: como mucho max-concurrent-calls llamadas en curso, las demás fallan al momento sin esperar.
+ *
+ * Circuit breaker sobre las últimas window-size llamadas (con al menos min-calls):
+ *
+ * * CLOSED: se llama normalmente. Si el porcentaje de fallos (error de red, timeout o 5xx) supera
+ *   failure-rate-threshold o el de llamadas lentas (más de slow-call-duration) supera slow-call-rate-threshold pasa a OPEN
+ * * OPEN: todas las llamadas fallan al momento durante open-duration, sin cargar más al microservicio
+ * * HALF_OPEN: se dejan pasar half-open-calls llamadas de prueba; si van bien vuelve a CLOSED y si no a OPEN
+ *
+ * Las llamadas rechazadas fallan con UpstreamRejectedException: ProductService las trata como cualquier otro error
+ * (producto sin ese dato). Las respuestas 4xx no cuentan como fallo del microservicio.
+ * La llamada termina al terminar de leer el cuerpo de la respuesta, no al recibir las cabeceras: el bulkhead cuenta
+ * la descarga del cuerpo y la duración de la llamada (lenta o no) también.
+ *
+ * Métricas products.upstream.circuit.state (0 cerrado, 1 abierto, 2 semiabierto), products.upstream.in-flight
+ * y products.upstream.rejected con reason=circuit_open o bulkhead_full
+ */
+@Slf4j
+public class UpstreamGuard implements ExchangeFilterFunction {
+
+    public enum State {CLOSED, OPEN, HALF_OPEN}
+
+    private final String upstream;
+    private final int maxConcurrentCalls;
+    private final int windowSize;
+    private final int minCalls;
+    private final double failureRateThreshold;
+    private final long slowCallNanos;
+    private final double slowCallRateThreshold;
+    private final long openNanos;
+    private final int halfOpenCalls;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Counter rejectedOpen;
+    private final Counter rejectedBulkhead;
+
+    // ventana circular de resultados, protegida por synchronized (las llamadas son de red, poca contención)
+    private final boolean[] failed;
+    private final boolean[] slow;
+    private int recorded;
+    private int next;
+    private State state = State.CLOSED;
+    private long openedAt;
+    private int halfOpenPermits;
+
+    public UpstreamGuard(String upstream, MeterRegistry meterRegistry, int maxConcurrentCalls,
+                         int windowSize, int minCalls, double failureRateThreshold,
+                         Duration slowCallDuration, double slowCallRateThreshold,
+                         Duration openDuration, int halfOpenCalls) {
+        this.upstream = upstream;
+        this.maxConcurrentCalls = maxConcurrentCalls;
+        this.windowSize = windowSize;
+        this.minCalls = Math.min(minCalls, windowSize);
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallNanos = slowCallDuration.toNanos();
+        this.slowCallRateThreshold = slowCallRateThreshold;
+        this.openNanos = openDuration.toNanos();
+        this.halfOpenCalls = halfOpenCalls;
+        this.failed = new boolean[windowSize];
+        this.slow = new boolean[windowSize];
+
+        Gauge.builder("products.upstream.circuit.state", this, guard -> guard.state().ordinal())
+                .description("Estado del circuit breaker: 0 cerrado, 1 abierto, 2 semiabierto")
+                .tag("upstream", upstream)
+                .register(meterRegistry);
+        Gauge.builder("products.upstream.in-flight", inFlight, AtomicInteger::get)
+                .description("Llamadas en curso al microservicio")
+                .tag("upstream", upstream)
+                .register(meterRegistry);
+        this.rejectedOpen = rejected(meterRegistry, upstream, "circuit_open");
+        this.rejectedBulkhead = rejected(meterRegistry, upstream, "bulkhead_full");
+    }
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        return Mono.defer(() -> {
+            if (!tryAcquireCircuit()) {
+                rejectedOpen.increment();
+                return Mono.error(new UpstreamRejectedException(upstream, "circuit breaker abierto"));
+            }
+            if (inFlight.incrementAndGet() > maxConcurrentCalls) {
+                inFlight.decrementAndGet();
+                releaseHalfOpenPermit();
+                rejectedBulkhead.increment();
+                return Mono.error(new UpstreamRejectedException(upstream, "bulkhead lleno"));
+            }
+
+            var call = new Call(System.nanoTime());
+            return next.exchange(request)
+                    .doOnError(e -> call.finish(true))
+                    .doOnCancel(call::cancel)
+                    // la llamada sigue en curso mientras se lee el cuerpo: termina con el último fragmento
+                    .map(response -> {
+                        boolean failure = response.statusCode().is5xxServerError();
+                        return response.mutate()
+                                .body(body -> body
+                                        .doOnError(e -> call.finish(true))
+                                        .doFinally(signal -> {
+                                            if (signal == SignalType.CANCEL) call.cancel();
+                                            else call.finish(failure);
+                                        }))
+                                .build();
+                    });
+        });
+    }
+
+    /**
+     * Una llamada en curso: termina una sola vez, con resultado (finish) o cancelada por quien llama (cancel)
+     */
+    private class Call {
+
+        private final long start;
+        private final AtomicBoolean done = new AtomicBoolean();
+
+        Call(long start) {
+            this.start = start;
+        }
+
+        void finish(boolean failure) {
+            if (done.compareAndSet(false, true)) {
+                inFlight.decrementAndGet();
+                record(failure, System.nanoTime() - start);
+            }
+        }
+
+        // cancelada por quien llama (ej: timeout del deadline o ganó la segunda llamada de HedgingPolicy): no cuenta
+        void cancel() {
+            if (done.compareAndSet(false, true)) {
+                inFlight.decrementAndGet();
+                releaseHalfOpenPermit();
+            }
+        }
+    }
+
+    public synchronized State state() {
+        if (state == State.OPEN && System.nanoTime() - openedAt >= openNanos)
+            return State.HALF_OPEN;
+        return state;
+    }
+
+    private synchronized boolean tryAcquireCircuit() {
+        if (state == State.OPEN) {
+            if (System.nanoTime() - openedAt < openNanos)
+                return false;
+            transition(State.HALF_OPEN);
+        }
+        if (state == State.HALF_OPEN) {
+            if (halfOpenPermits <= 0)
+                return false;
+            halfOpenPermits--;
+        }
+        return true;
+    }
+
+    private synchronized void releaseHalfOpenPermit() {
+        if (state == State.HALF_OPEN)
+            halfOpenPermits++;
+    }
+
+    private synchronized void record(boolean failure, long nanos) {
+        if (state == State.OPEN)
+            return;
+        failed[next] = failure;
+        slow[next] = nanos > slowCallNanos;
+        next = (next + 1) % windowSize;
+        recorded = Math.min(recorded + 1, windowSize);
+
+        if (state == State.HALF_OPEN) {
+            // todas las llamadas de prueba han terminado
+            if (recorded >= halfOpenCalls)
+                transition(exceedsThresholds() ? State.OPEN : State.CLOSED);
+        } else if (recorded >= minCalls && exceedsThresholds()) {
+            transition(State.OPEN);
+        }
+    }
+
+    private boolean exceedsThresholds() {
+        int failures = 0;
+        int slowCalls = 0;
+        for (int i = 0; i < recorded; i++) {
+            if (failed[i]) failures++;
+            if (slow[i]) slowCalls++;
+        }
+        return failures * 100.0 / recorded >= failureRateThreshold
+                || slowCalls * 100.0 / recorded >= slowCallRateThreshold;
+    }
+
+    private void transition(State newState) {
+        log.warn("Circuit breaker de {}: {} -> {}", upstream, state, newState);
+        state = newState;
+        recorded = 0;
+        next = 0;
+        if (newState == State.OPEN)
+            openedAt = System.nanoTime();
+        if (newState == State.HALF_OPEN)
+            halfOpenPermits = halfOpenCalls;
+    }
+
+    private static Counter rejected(MeterRegistry meterRegistry, String upstream, String reason) {
+        return Counter.builder("products.upstream.rejected")
+                .description("Llamadas a microservicios rechazadas sin enviarse")
+                .tag("upstream", upstream)
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+}
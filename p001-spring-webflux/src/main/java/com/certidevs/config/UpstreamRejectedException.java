@@ -0,0 +1,12 @@
+package com.certidevs.config;
+
+/**
+ * Llamada a un microservicio rechazada sin enviarse: circuit breaker abierto o bulkhead lleno (UpstreamGuard)
+ */
+public class UpstreamRejectedException extends RuntimeException {
+
+    public UpstreamRejectedException(String upstream, String reason) {
+        // sin traza: con el circuito abierto se crea una por llamada y no aporta nada
+        super(upstream + ": " + reason, null, false, false);
+    }
+}
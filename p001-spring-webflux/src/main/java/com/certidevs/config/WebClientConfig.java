@@ -7,13 +7,35 @@ import org.springframework.web.reactive.function.client.WebClient;
 @Configuration
 public class WebClientConfig {
 
+    // WebClient.create(url) usa el pool por defecto de Reactor Netty sin timeouts ni compresión,
+    // UpstreamClientFactory crea un pool configurable por microservicio (propiedades upstream.*)
     @Bean
-    public WebClient manufacturerClient() {
-        return WebClient.create("https://api.manufacturers.com");
+    public WebClient manufacturerClient(UpstreamClientFactory factory) {
+//        return WebClient.create("https://api.manufacturers.com");
+        return factory.create("manufacturer", "https://api.manufacturers.com");
     }
 
     @Bean
-    public WebClient ratingClient() {
-        return WebClient.create("https://api.ratings.com");
+    public WebClient ratingClient(UpstreamClientFactory factory) {
+//        return WebClient.create("https://api.ratings.com");
+        return factory.create("rating", "https://api.ratings.com");
+    }
+
+    // servicio remoto de productos, delante de él está RemoteProductReplica
+    @Bean
+    public WebClient productClient(UpstreamClientFactory factory) {
+        return factory.create("product", "https://api.products.com");
+    }
+
+    // segundas llamadas a ratings si la primera tarda más que su p95 (upstream.rating.hedge.*)
+    @Bean
+    public HedgingPolicy ratingHedging(UpstreamClientFactory factory) {
+        return factory.hedgingPolicy("rating");
+    }
+
+    // JWK set del proveedor de identidad para JwtVerifier
+    @Bean
+    public WebClient jwksClient(UpstreamClientFactory factory) {
+        return factory.create("jwks", "http://localhost:8081/.well-known/jwks.json");
     }
 }
@@ -0,0 +1,41 @@
+package com.certidevs.controller;
+
+import com.certidevs.entity.Manufacturer;
+import com.certidevs.service.ManufacturerService;
+import lombok.AllArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Fabricantes con sus productos /api/manufacturers
+ */
+@AllArgsConstructor
+@RestController
+@RequestMapping("/api/manufacturers")
+public class ManufacturerController {
+
+    private ManufacturerService manufacturerService;
+
+    /**
+     * Todos los fabricantes con sus productos en streaming
+     *
+     * * Accept: application/x-ndjson un fabricante JSON por línea
+     * * Accept: text/event-stream un evento SSE por fabricante
+     *
+     * Cada fabricante se envía en cuanto se han leído todos sus productos, sin juntar la lista completa en memoria
+     */
+    @GetMapping(value = "with-products", produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE})
+    public Flux<Manufacturer> findAllWithProducts(@RequestParam(defaultValue = "500") Integer fetchSize) {
+        return manufacturerService.findAllWithProducts(Math.clamp(fetchSize, 1, 10_000));
+    }
+
+    @GetMapping("{id}/with-products")
+    public Mono<ResponseEntity<Manufacturer>> findByIdWithProducts(@PathVariable Long id) {
+        return manufacturerService.findByIdWithProducts(id)
+                .map(ResponseEntity::ok)
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+}
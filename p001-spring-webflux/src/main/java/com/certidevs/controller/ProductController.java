@@ -1,19 +1,25 @@
 package com.certidevs.controller;
 
 
+import com.certidevs.dto.BulkImportResult;
 import com.certidevs.entity.Product;
+import com.certidevs.repository.ProductRepositoryCustom;
 import com.certidevs.service.ProductService;
+import com.certidevs.service.ProductVersionIndex;
+import com.certidevs.service.WriteDurability;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.net.URI;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Controlador REST con enfoque tradicional usando @RestController, @GetMapping, @PostMapping... y ResponseEntity
@@ -30,6 +36,8 @@ import java.util.List;
 @RequestMapping("/api/products")
 public class ProductController {
 
+    static final String WRITE_DURABILITY_HEADER = "X-Write-Durability";
+
     private ProductService productService;
 
     // findAll
@@ -49,21 +57,84 @@ public class ProductController {
         return Mono.just(ResponseEntity.ok(productService.findAll()));
     }
 
+    /**
+     * Exportación del catálogo en streaming para consumidores masivos (indexadores, procesos de precios...)
+     *
+     * * Accept: application/x-ndjson un producto JSON por línea
+     * * Accept: text/event-stream un evento SSE por producto
+     *
+     * Ejemplo: /api/products/export?fields=id,title,price&fetchSize=500
+     *
+     * Los productos se envían según llegan de base de datos, sin juntar la lista completa en memoria
+     */
+    @GetMapping(value = "export", produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE})
+    public Mono<ResponseEntity<Flux<Map<String, Object>>>> export(
+            @RequestParam(defaultValue = "id,title,price,quantity,active,creationDate,manufacturerId") List<String> fields,
+            @RequestParam(defaultValue = "500") Integer fetchSize) {
+        if (!ProductRepositoryCustom.STREAM_FIELDS.containsAll(fields))
+            return Mono.just(ResponseEntity.badRequest().build()); // 400
+
+        return Mono.just(ResponseEntity.ok(productService.export(fields, Math.clamp(fetchSize, 1, 10_000))));
+    }
+
+    /**
+     * Avisos de stock bajo para paneles de almacén, en lugar de consultar periódicamente findByQuantityLessThan
+     *
+     * Ejemplo: /api/products/low-stock?threshold=10 con Accept: text/event-stream
+     *
+     * Envía los productos que ya tienen menos de threshold unidades y, sin cerrar la conexión,
+     * cada producto que baje del umbral a partir de ese momento
+     */
+    @GetMapping(value = "low-stock", produces = {MediaType.TEXT_EVENT_STREAM_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Mono<ResponseEntity<Flux<Product>>> lowStock(@RequestParam(defaultValue = "10") Integer threshold) {
+        if (threshold < 1)
+            return Mono.just(ResponseEntity.badRequest().build()); // 400
+
+        return Mono.just(ResponseEntity.ok(productService.lowStock(threshold)));
+    }
+
     @GetMapping("{id}")
-    public Mono<ResponseEntity<Product>> findById(@PathVariable Long id) {
+    public Mono<ResponseEntity<Product>> findById(@PathVariable Long id, ServerWebExchange exchange) {
+        // GET condicional: si ya se conoce la versión del producto y el cliente la tiene, 304 sin ir a base de datos
+        var known = productService.knownValidators(id);
+        if (known != null && checkNotModified(exchange, known))
+            return Mono.just(ResponseEntity.status(HttpStatus.NOT_MODIFIED).<Product>build()); // 304
+
         return productService.findById(id)
 //                .map(product -> ResponseEntity.ok(product))
-                .map(ResponseEntity::ok)
+//                .map(ResponseEntity::ok)
+                .map(product -> {
+                    var validators = productService.validators(product);
+                    var response = ResponseEntity.ok().eTag(validators.etag());
+                    if (validators.lastModified() != null)
+                        response.lastModified(validators.lastModified());
+                    // ResponseEntityResultHandler responde 304 si coinciden If-None-Match / If-Modified-Since
+                    return response.body(product);
+                })
                 .defaultIfEmpty(ResponseEntity.notFound().build());
     }
 
+    // añade ETag y Last-Modified a la respuesta 304
+    private static boolean checkNotModified(ServerWebExchange exchange, ProductVersionIndex.Validators validators) {
+        return validators.lastModified() == null
+                ? exchange.checkNotModified(validators.etag())
+                : exchange.checkNotModified(validators.etag(), validators.lastModified());
+    }
+
+    /**
+     * Alta de producto. La cabecera X-Write-Durability (SYNC, FLUSHED, MEMORY) elige cuándo se confirma:
+     * con MEMORY se responde 202 al encolarla en ProductWriteBehind, todavía sin id
+     */
     @PostMapping
-    public Mono<ResponseEntity<Product>> create (@RequestBody Product product) {
+    public Mono<ResponseEntity<Product>> create (@RequestBody Product product,
+                                                 @RequestHeader(name = WRITE_DURABILITY_HEADER, defaultValue = "SYNC") WriteDurability durability) {
         if (product.getId() != null)
             return Mono.just(ResponseEntity.badRequest().build()); // 400
 
-        return productService.save(product)
-                .map(p -> ResponseEntity.created(URI.create("/api/product/" + p.getId())).body(product)) // 201
+        return productService.save(product, durability)
+                .map(p -> durability == WriteDurability.MEMORY
+                        ? ResponseEntity.accepted().body(p) // 202
+                        : ResponseEntity.created(URI.create("/api/product/" + p.getId())).body(p)) // 201
                 .onErrorResume(e -> {
                    log.warn("Error creating product", e);
                    // return Mono.just(ResponseEntity.internalServerError().build()); // 500
@@ -71,14 +142,28 @@ public class ProductController {
                 });
     }
 
+    /**
+     * Carga masiva de productos desde un cuerpo NDJSON (un producto JSON por línea)
+     *
+     * Los productos se insertan por lotes con INSERT multi-fila según llegan, sin leer todo el cuerpo en memoria.
+     * Las filas con título duplicado se informan en la respuesta sin abortar la carga.
+     */
+    @PostMapping(value = "bulk", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public Mono<ResponseEntity<BulkImportResult>> bulkCreate(@RequestBody Flux<Product> products) {
+        return productService.bulkCreate(products)
+                .map(ResponseEntity::ok);
+    }
 
     @PutMapping("{id}")
-    public Mono<ResponseEntity<Product>> update(@PathVariable Long id, @RequestBody Product product) {
+    public Mono<ResponseEntity<Product>> update(@PathVariable Long id, @RequestBody Product product,
+                                                @RequestHeader(name = WRITE_DURABILITY_HEADER, defaultValue = "SYNC") WriteDurability durability) {
         if (product.getId() == null)
             return Mono.just(ResponseEntity.badRequest().build()); // 400
 
-        return productService.update(id, product)
-                .map(ResponseEntity::ok) // 200
+        return productService.update(id, product, durability)
+                .map(p -> durability == WriteDurability.MEMORY
+                        ? ResponseEntity.accepted().body(p) // 202, sin comprobar que exista
+                        : ResponseEntity.ok(p)) // 200
                 .defaultIfEmpty(ResponseEntity.notFound().build()) // 404
                 .onErrorResume(e -> {
                     log.warn("Error updating product", e);
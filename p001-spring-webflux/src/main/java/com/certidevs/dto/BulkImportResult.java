@@ -0,0 +1,29 @@
+package com.certidevs.dto;
+
+import java.util.List;
+
+/**
+ * Resultado de una carga masiva de productos
+ *
+ * @param conflicts filas rechazadas por título duplicado (se devuelven como máximo las primeras MAX_REPORTED_ROWS)
+ * @param errors filas rechazadas por otros errores (se devuelven como máximo las primeras MAX_REPORTED_ROWS)
+ */
+public record BulkImportResult(
+        Long received,
+        Long inserted,
+        Long conflictCount,
+        Long errorCount,
+        Long batches,
+        Long elapsedMillis,
+        Double rowsPerSecond,
+        List<RejectedRow> conflicts,
+        List<RejectedRow> errors
+) {
+    public static final int MAX_REPORTED_ROWS = 1000;
+
+    /**
+     * @param row posición de la fila en el cuerpo NDJSON empezando en 0
+     */
+    public record RejectedRow(Long row, String title, String reason) {
+    }
+}
@@ -1,11 +1,9 @@
 package com.certidevs.dto;
 
-import com.certidevs.entity.Product;
-
 import java.util.List;
 
 public record PaginatedProductResponse(
-        List<Product> products,
+        List<ProductSummary> products,
         Integer page,
         Integer size,
         Long total
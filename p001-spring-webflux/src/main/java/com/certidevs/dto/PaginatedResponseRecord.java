@@ -6,6 +6,11 @@ public record PaginatedResponseRecord<T>(
         List<T> items,
         Integer page,
         Integer size,
-        Long total
+        Long total,
+        String nextCursor // cursor opaco para pedir la siguiente página en paginación keyset, null si no hay más
 ) {
+
+    public PaginatedResponseRecord(List<T> items, Integer page, Integer size, Long total) {
+        this(items, page, size, total, null);
+    }
 }
@@ -0,0 +1,10 @@
+package com.certidevs.dto;
+
+/**
+ * Evento del servicio remoto de productos: el producto id ha cambiado o se ha borrado.
+ * Sin id invalida todos los productos.
+ */
+public record ProductInvalidation(
+        Long id
+) {
+}
@@ -0,0 +1,11 @@
+package com.certidevs.dto;
+
+/**
+ * Resultado de la búsqueda por título (TitleSearchIndex): mayor score = mejor coincidencia
+ */
+public record ProductSearchHit(
+        Long id,
+        String title,
+        int score
+) {
+}
@@ -0,0 +1,14 @@
+package com.certidevs.dto;
+
+/**
+ * Proyección de Product para listados y paginación: solo las columnas que se envían,
+ * sin los campos @Transient (manufacturer, ratings, missing) de la entidad
+ */
+public record ProductSummary(
+        Long id,
+        String title,
+        Double price,
+        Integer quantity,
+        Boolean active
+) {
+}
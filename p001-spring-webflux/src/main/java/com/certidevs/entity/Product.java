@@ -1,16 +1,19 @@
 package com.certidevs.entity;
 
 import com.certidevs.dto.RatingDTO;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.*;
 import lombok.experimental.Accessors;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.annotation.Transient;
+import org.springframework.data.annotation.Version;
 import org.springframework.data.relational.core.mapping.Table;
 
 import java.time.LocalDateTime;
-import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
 
 
 @Getter
@@ -31,11 +34,30 @@ public class Product {
     private Boolean active;
     private LocalDateTime creationDate;
     private Long manufacturerId;
+    // se incrementa en cada UPDATE (bloqueo optimista de Spring Data y ETag de los GET condicionales)
+    @Version
+    private Long version;
+    private LocalDateTime lastModified;
 
     @Transient
     private Manufacturer manufacturer;
+    // sin inicializar: R2DBC crea cada fila con el constructor vacío y no hace falta una lista por producto
     @Transient
-    private List<RatingDTO> ratings = new ArrayList<>();
+    private List<RatingDTO> ratings;
+    // datos de otros microservicios que no se han podido obtener a tiempo (ej: "manufacturer", "ratings")
+    @Transient
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    private Set<String> missing;
+
+    // lista vacía inmutable compartida si no se han cargado ratings, en JSON sigue saliendo []
+    public List<RatingDTO> getRatings() {
+        return ratings == null ? List.of() : ratings;
+    }
+
+    public void markMissing(String data) {
+        if (missing == null) missing = new LinkedHashSet<>();
+        missing.add(data);
+    }
 
     @Override
     public boolean equals(Object o) {
@@ -3,8 +3,11 @@ package com.certidevs.handler;
 import com.certidevs.dto.PaginatedProductResponse;
 import com.certidevs.dto.PaginatedResponse;
 import com.certidevs.dto.PaginatedResponseRecord;
+import com.certidevs.dto.ProductSearchHit;
+import com.certidevs.dto.ProductSummary;
 import com.certidevs.entity.Product;
 import com.certidevs.service.ProductService;
+import com.certidevs.service.ProductVersionIndex;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
@@ -14,6 +17,8 @@ import org.springframework.web.reactive.function.server.ServerResponse;
 import reactor.core.publisher.Mono;
 
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
 
 /**
 Manejador para las rutas de API de Product
@@ -23,11 +28,15 @@ Manejador para las rutas de API de Product
 @Component
 public class ProductHandler {
 
+    private static final int MAX_SEARCH_LIMIT = 100;
+    private static final int MAX_PAGE_SIZE = 100;
+
     private ProductService productService;
 
+    // los listados usan la proyección ProductSummary en lugar de la entidad completa
     public Mono<ServerResponse> findAll(ServerRequest request) {
         return ServerResponse.ok().body(
-                productService.findAll(), Product.class
+                productService.findAllSummaries(), ProductSummary.class
         );
     }
     // paginación
@@ -39,7 +48,7 @@ public class ProductHandler {
         return ServerResponse.ok().body(
                 productService.count()
                 .flatMap(total -> productService
-                    .findAll()
+                    .findAllSummaries()
                     .skip(offset)
                     .take(size)
                     .collectList()
@@ -84,7 +93,7 @@ public class ProductHandler {
         return ServerResponse.ok().body(
                 productService.count()
                         .flatMap(total -> productService
-                                .findAll()
+                                .findAllSummaries()
                                 .skip(offset)
                                 .take(size)
                                 .collectList()
@@ -98,12 +107,96 @@ public class ProductHandler {
                         ), PaginatedResponseRecord.class);
     }
 
+    /**
+     * Paginación keyset (seek) con cursor opaco: ?cursor=...&size=20&total=true
+     *
+     * A diferencia de findAllPaginated no recorre todos los productos con skip/take,
+     * lee solo las filas de la página a partir del último id (WHERE id > cursor ORDER BY id LIMIT size).
+     * El total es opcional y sale de un count cacheado, no se ejecuta un count por cada página.
+     */
+    public Mono<ServerResponse> findAllPaginatedByCursor(ServerRequest request) {
+        int size = request.queryParam("size").map(Integer::parseInt).orElse(20);
+        boolean withTotal = request.queryParam("total").map(Boolean::parseBoolean).orElse(false);
+        if (size < 1 || size > MAX_PAGE_SIZE)
+            return Mono.error(new IllegalArgumentException("size debe estar entre 1 y " + MAX_PAGE_SIZE));
+
+        // se decodifica dentro del Mono para que un cursor inválido llegue como error a onError del router (400)
+        Mono<Long> cursorMono = Mono.fromCallable(() ->
+                request.queryParam("cursor").map(ProductHandler::decodeCursor).orElse(0L));
+        Mono<Long> totalMono = withTotal ? productService.countCached() : Mono.just(-1L);
+
+        return cursorMono
+                .flatMap(cursor -> productService.findSummaryPageAfter(cursor, size).collectList())
+                .zipWith(totalMono)
+                .map(tuple -> {
+                    var products = tuple.getT1();
+                    // si la página está completa puede haber más productos
+                    String nextCursor = products.size() == size
+                            ? encodeCursor(products.getLast().id())
+                            : null;
+                    return new PaginatedResponseRecord<>(
+                            products,
+                            null,
+                            size,
+                            withTotal ? tuple.getT2() : null,
+                            nextCursor
+                    );
+                })
+                .flatMap(page -> ServerResponse.ok().bodyValue(page));
+    }
+
+    private static String encodeCursor(Long id) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(String.valueOf(id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Long decodeCursor(String cursor) {
+        try {
+            return Long.valueOf(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException e) { // incluye NumberFormatException
+            throw new IllegalArgumentException("Cursor inválido", e);
+        }
+    }
+
+    /**
+     * Búsqueda en los títulos desde el índice en memoria: ?q=...&limit=10
+     *
+     * Cada palabra de q debe aparecer en el título, completa, como prefijo (autocompletar) o con una errata.
+     * Devuelve id, título y puntuación de mejor a peor, sin consultar la tabla.
+     */
+    public Mono<ServerResponse> search(ServerRequest request) {
+        String query = request.queryParam("q").orElse("");
+        int limit = request.queryParam("limit").map(Integer::parseInt).orElse(10);
+        if (query.isBlank())
+            return Mono.error(new IllegalArgumentException("q es obligatorio"));
+        if (limit < 1 || limit > MAX_SEARCH_LIMIT)
+            return Mono.error(new IllegalArgumentException("limit debe estar entre 1 y " + MAX_SEARCH_LIMIT));
+
+        return ServerResponse.ok().body(productService.search(query, limit), ProductSearchHit.class);
+    }
 
     public Mono<ServerResponse> findById(ServerRequest request) {
         Long id = Long.valueOf(request.pathVariable("id"));
-        return productService.findById(id)
-                .flatMap(p -> ServerResponse.ok().bodyValue(p))
-                .switchIfEmpty(ServerResponse.notFound().build());
+        // GET condicional: si ya se conoce la versión del producto y el cliente la tiene, 304 sin ir a base de datos
+        var known = productService.knownValidators(id);
+        Mono<ServerResponse> notModified = known == null ? Mono.empty() : checkNotModified(request, known);
+
+        return notModified.switchIfEmpty(Mono.defer(() -> productService.findById(id)
+                .flatMap(p -> {
+                    var validators = productService.validators(p);
+                    var response = ServerResponse.ok().eTag(validators.etag());
+                    if (validators.lastModified() != null)
+                        response.lastModified(validators.lastModified());
+                    return checkNotModified(request, validators).switchIfEmpty(response.bodyValue(p));
+                })
+                .switchIfEmpty(ServerResponse.notFound().build())));
+    }
+
+    // 304 con ETag y Last-Modified si coinciden If-None-Match / If-Modified-Since, vacío si no
+    private static Mono<ServerResponse> checkNotModified(ServerRequest request, ProductVersionIndex.Validators validators) {
+        return validators.lastModified() == null
+                ? request.checkNotModified(validators.etag())
+                : request.checkNotModified(validators.lastModified(), validators.etag());
     }
 
     public Mono<ServerResponse> create(ServerRequest request) {
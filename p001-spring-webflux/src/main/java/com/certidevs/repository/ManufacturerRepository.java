@@ -5,7 +5,7 @@ import com.certidevs.entity.Product;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 import reactor.core.publisher.Mono;
 
-public interface ManufacturerRepository extends ReactiveCrudRepository<Manufacturer, Long> {
+public interface ManufacturerRepository extends ReactiveCrudRepository<Manufacturer, Long>, ManufacturerRepositoryCustom {
 
     Mono<Manufacturer> findByName(String name);
 }
@@ -0,0 +1,25 @@
+package com.certidevs.repository;
+
+import com.certidevs.entity.Manufacturer;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Consultas de ManufacturerRepository con DatabaseClient, se implementan en ManufacturerRepositoryCustomImpl
+ */
+public interface ManufacturerRepositoryCustom {
+
+    /**
+     * Fabricantes ordenados por id con sus productos (ordenados por id) en products.
+     *
+     * Una sola consulta manufacturer LEFT JOIN product: las filas se agrupan por fabricante según llegan
+     * y cada fabricante se emite en cuanto empiezan las filas del siguiente, sin una consulta de productos por fabricante.
+     * La base de datos envía las filas en bloques de fetchSize.
+     */
+    Flux<Manufacturer> findAllWithProducts(int fetchSize);
+
+    /**
+     * Fabricante con sus productos en una sola consulta, vacío si no existe
+     */
+    Mono<Manufacturer> findByIdWithProducts(Long id);
+}
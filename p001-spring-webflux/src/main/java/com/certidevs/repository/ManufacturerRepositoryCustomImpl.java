@@ -0,0 +1,90 @@
+package com.certidevs.repository;
+
+import com.certidevs.entity.Manufacturer;
+import com.certidevs.entity.Product;
+import io.r2dbc.spi.Readable;
+import lombok.AllArgsConstructor;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+@AllArgsConstructor
+public class ManufacturerRepositoryCustomImpl implements ManufacturerRepositoryCustom {
+
+    // ordenado por fabricante para poder agrupar las filas sin esperar al final del resultado,
+    // el índice (manufacturer_id, id) de product ya devuelve los productos de cada fabricante ordenados
+    private static final String WITH_PRODUCTS = """
+            SELECT m.id AS m_id, m.name, m.country, m.foundation_year,
+                   p.id AS p_id, p.title, p.price, p.quantity, p.active, p.creation_date, p.version, p.last_modified
+            FROM manufacturer m
+            LEFT JOIN product p ON p.manufacturer_id = m.id
+            """;
+
+    private final DatabaseClient databaseClient;
+
+    // una fila del JOIN: product es null si el fabricante no tiene productos
+    private record ManufacturerProductRow(Manufacturer manufacturer, Product product) {
+    }
+
+    @Override
+    public Flux<Manufacturer> findAllWithProducts(int fetchSize) {
+        return databaseClient.sql(WITH_PRODUCTS + "ORDER BY m.id, p.id")
+                .filter(statement -> statement.fetchSize(fetchSize))
+                .map(ManufacturerRepositoryCustomImpl::toRow)
+                .all()
+                .bufferUntilChanged(row -> row.manufacturer().getId())
+                .map(ManufacturerRepositoryCustomImpl::toManufacturer);
+    }
+
+    @Override
+    public Mono<Manufacturer> findByIdWithProducts(Long id) {
+        return databaseClient.sql(WITH_PRODUCTS + "WHERE m.id = :id ORDER BY p.id")
+                .bind("id", id)
+                .map(ManufacturerRepositoryCustomImpl::toRow)
+                .all()
+                .collectList()
+                .filter(rows -> !rows.isEmpty())
+                .map(ManufacturerRepositoryCustomImpl::toManufacturer);
+    }
+
+    private static ManufacturerProductRow toRow(Readable row) {
+        var manufacturer = Manufacturer.builder()
+                .id(row.get("m_id", Long.class))
+                .name(row.get("name", String.class))
+                .country(row.get("country", String.class))
+                .foundationYear(row.get("foundation_year", Integer.class))
+                .build();
+        Long productId = row.get("p_id", Long.class);
+        if (productId == null)
+            return new ManufacturerProductRow(manufacturer, null);
+
+        var product = Product.builder()
+                .id(productId)
+                .title(row.get("title", String.class))
+                .price(row.get("price", Double.class))
+                .quantity(row.get("quantity", Integer.class))
+                .active(row.get("active", Boolean.class))
+                .creationDate(row.get("creation_date", LocalDateTime.class))
+                .version(row.get("version", Long.class))
+                .lastModified(row.get("last_modified", LocalDateTime.class))
+                .manufacturerId(manufacturer.getId())
+                .build();
+        return new ManufacturerProductRow(manufacturer, product);
+    }
+
+    // todas las filas son del mismo fabricante
+    private static Manufacturer toManufacturer(List<ManufacturerProductRow> rows) {
+        var manufacturer = rows.getFirst().manufacturer();
+        List<Product> products = new ArrayList<>(rows.size());
+        for (var row : rows) {
+            if (row.product() != null)
+                products.add(row.product());
+        }
+        manufacturer.setProducts(products);
+        return manufacturer;
+    }
+}
@@ -1,14 +1,17 @@
 package com.certidevs.repository;
 
+import com.certidevs.dto.ProductSummary;
 import com.certidevs.entity.Product;
+import org.springframework.data.r2dbc.repository.Modifying;
 import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.Collection;
 import java.util.List;
 
-public interface ProductRepository extends ReactiveCrudRepository<Product, Long> {
+public interface ProductRepository extends ReactiveCrudRepository<Product, Long>, ProductRepositoryCustom {
 
 
     Mono<Product> findByTitle(String title);
@@ -18,11 +21,86 @@ public interface ProductRepository extends ReactiveCrudRepository<Product, Long>
     Flux<Product> findByManufacturerId(Long manufacturerId);
     Flux<Product> findByActiveTrue();
     Flux<Product> findByActiveFalse();
+    Flux<Product> findByTitleIn(Collection<String> titles);
 
     @Query("""
     SELECT * FROM product WHERE quantity < :quantity
     """)
     Flux<Product> findByQuantityLessThan(Integer quantity);
 
+    // Paginación keyset (seek): en lugar de saltar filas con offset se busca a partir del último id leído,
+    // así cada página solo lee "size" filas usando la clave primaria
+    @Query("""
+    SELECT * FROM product WHERE id > :cursor ORDER BY id LIMIT :size
+    """)
+    Flux<Product> findPageAfter(Long cursor, Integer size);
+
+    // Proyecciones para listados: solo las columnas necesarias y sin crear entidades Product,
+    // el título se pasa a mayúsculas en la consulta (ProductService.findAll lo hace en Java sobre la entidad)
+    @Query("""
+    SELECT id, UPPER(title) AS title, price, quantity, active FROM product ORDER BY id
+    """)
+    Flux<ProductSummary> findAllSummaries();
+
+    @Query("""
+    SELECT id, UPPER(title) AS title, price, quantity, active FROM product WHERE id > :cursor ORDER BY id LIMIT :size
+    """)
+    Flux<ProductSummary> findSummaryPageAfter(Long cursor, Integer size);
+
+    // Actualización en bloque en base de datos: una sola sentencia UPDATE en lugar de cargar y guardar cada producto
+    @Modifying
+    @Query("""
+    UPDATE product SET price = COALESCE(price, 0) * (1 + CAST(:percentage AS DOUBLE PRECISION) / 100),
+        version = version + 1, last_modified = CURRENT_TIMESTAMP
+    WHERE active = TRUE
+    """)
+    Mono<Integer> increasePriceOfActive(Double percentage);
+
+    /**
+     * Misma actualización devolviendo las filas modificadas por el propio UPDATE, sin una segunda consulta
+     * que podría leer otros cambios.
+     *
+     * Solo H2: SELECT ... FROM FINAL TABLE (UPDATE ...) no existe en otras bases de datos.
+     * Al cambiar de base de datos hay que reescribirla, en PostgreSQL como UPDATE ... RETURNING *
+     */
+    @Query("""
+    SELECT * FROM FINAL TABLE (
+        UPDATE product SET price = COALESCE(price, 0) * (1 + CAST(:percentage AS DOUBLE PRECISION) / 100),
+            version = version + 1, last_modified = CURRENT_TIMESTAMP
+        WHERE active = TRUE
+    ) ORDER BY id
+    """)
+    Flux<Product> increasePriceOfActiveReturning(Double percentage);
+
+    // Misma actualización por rangos de id para no bloquear toda la tabla en una sola transacción
+    @Modifying
+    @Query("""
+    UPDATE product SET price = COALESCE(price, 0) * (1 + CAST(:percentage AS DOUBLE PRECISION) / 100),
+        version = version + 1, last_modified = CURRENT_TIMESTAMP
+    WHERE active = TRUE AND id >= :fromId AND id < :toId
+    """)
+    Mono<Integer> increasePriceOfActiveInRange(Double percentage, Long fromId, Long toId);
+
+    @Query("""
+    SELECT MAX(id) FROM product
+    """)
+    Mono<Long> findMaxId();
+
+    // Decremento atómico en una sola sentencia: solo actualiza si hay cantidad suficiente,
+    // devuelve 0 filas actualizadas si no existe o no hay stock (sin leer y guardar desde Java)
+    @Modifying
+    @Query("""
+    UPDATE product SET quantity = quantity - :amount, version = version + 1, last_modified = CURRENT_TIMESTAMP
+    WHERE id = :id AND quantity >= :amount
+    """)
+    Mono<Integer> decrementQuantity(Long id, Integer amount);
+
+    @Modifying
+    @Query("""
+    UPDATE product SET quantity = quantity + :amount, version = version + 1, last_modified = CURRENT_TIMESTAMP
+    WHERE id = :id
+    """)
+    Mono<Integer> incrementQuantity(Long id, Integer amount);
+
 
 }
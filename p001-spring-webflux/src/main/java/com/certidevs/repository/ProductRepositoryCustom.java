@@ -0,0 +1,45 @@
+package com.certidevs.repository;
+
+import com.certidevs.entity.Product;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Consultas de ProductRepository que no se pueden expresar con métodos derivados ni @Query,
+ * se implementan con DatabaseClient en ProductRepositoryCustomImpl
+ */
+public interface ProductRepositoryCustom {
+
+    // atributos de Product que se pueden pedir en streamColumns
+    Set<String> STREAM_FIELDS = Set.of("id", "title", "price", "quantity", "active", "creationDate", "manufacturerId");
+
+    /**
+     * Emite los productos ordenados por id solo con las columnas pedidas (nombres de atributo de Product),
+     * sin crear entidades Product. La base de datos envía las filas en bloques de fetchSize.
+     */
+    Flux<Map<String, Object>> streamColumns(List<String> fields, int fetchSize);
+
+    /**
+     * Inserta todos los productos en un único INSERT multi-fila (INSERT ... VALUES (...), (...), ...).
+     * Si alguna fila falla (ej: título duplicado) no se inserta ninguna y se emite el error.
+     * last_modified es la hora del INSERT y version queda en su valor por defecto (0).
+     * Devuelve el número de filas insertadas.
+     */
+    Mono<Long> insertBatch(List<Product> products);
+
+    /**
+     * Actualiza precio y cantidad de todos los productos en un único UPDATE ... SET price = CASE id WHEN ... END
+     * con la versión y last_modified como el resto de UPDATE. Los ids que no existen se ignoran.
+     * Devuelve el número de filas actualizadas.
+     */
+    Mono<Long> updateBatch(List<Product> products);
+
+    /**
+     * Producto con su fabricante en manufacturer en una sola consulta (product LEFT JOIN manufacturer)
+     */
+    Mono<Product> findByIdWithManufacturer(Long id);
+}
@@ -0,0 +1,140 @@
+package com.certidevs.repository;
+
+import com.certidevs.entity.Manufacturer;
+import com.certidevs.entity.Product;
+import lombok.AllArgsConstructor;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+@AllArgsConstructor
+public class ProductRepositoryCustomImpl implements ProductRepositoryCustom {
+
+    private final DatabaseClient databaseClient;
+
+    @Override
+    public Flux<Map<String, Object>> streamColumns(List<String> fields, int fetchSize) {
+        // solo se admiten atributos conocidos, también evita inyección SQL en la lista de columnas
+        if (!STREAM_FIELDS.containsAll(fields))
+            return Flux.error(new IllegalArgumentException("Campos no válidos: " + fields));
+
+        String columns = fields.stream().map(ProductRepositoryCustomImpl::toColumn).collect(Collectors.joining(", "));
+        return databaseClient.sql("SELECT " + columns + " FROM product ORDER BY id")
+                .filter(statement -> statement.fetchSize(fetchSize))
+                .map(row -> {
+                    Map<String, Object> values = new LinkedHashMap<>();
+                    for (String field : fields)
+                        values.put(field, row.get(toColumn(field)));
+                    return values;
+                })
+                .all();
+    }
+
+    @Override
+    public Mono<Long> insertBatch(List<Product> products) {
+        if (products.isEmpty())
+            return Mono.just(0L);
+
+        var sql = new StringBuilder("INSERT INTO product (title, price, quantity, active, creation_date, last_modified, manufacturer_id) VALUES ");
+        for (int i = 0; i < products.size(); i++) {
+            if (i > 0) sql.append(", ");
+            sql.append("(:title").append(i)
+                    .append(", :price").append(i)
+                    .append(", :quantity").append(i)
+                    .append(", :active").append(i)
+                    .append(", :creationDate").append(i)
+                    .append(", :lastModified").append(i)
+                    .append(", :manufacturerId").append(i)
+                    .append(")");
+        }
+
+        var spec = databaseClient.sql(sql.toString());
+        var now = LocalDateTime.now();
+        for (int i = 0; i < products.size(); i++) {
+            Product p = products.get(i);
+            spec = bind(spec, "title" + i, p.getTitle(), String.class);
+            spec = bind(spec, "price" + i, p.getPrice(), Double.class);
+            spec = bind(spec, "quantity" + i, p.getQuantity(), Integer.class);
+            spec = bind(spec, "active" + i, p.getActive(), Boolean.class);
+            spec = bind(spec, "creationDate" + i, p.getCreationDate(), LocalDateTime.class);
+            spec = bind(spec, "lastModified" + i, now, LocalDateTime.class);
+            spec = bind(spec, "manufacturerId" + i, p.getManufacturerId(), Long.class);
+        }
+        return spec.fetch().rowsUpdated();
+    }
+
+    @Override
+    public Mono<Long> updateBatch(List<Product> products) {
+        if (products.isEmpty())
+            return Mono.just(0L);
+
+        var price = new StringBuilder("CASE id");
+        var quantity = new StringBuilder("CASE id");
+        var ids = new StringBuilder();
+        for (int i = 0; i < products.size(); i++) {
+            price.append(" WHEN :id").append(i).append(" THEN CAST(:price").append(i).append(" AS DOUBLE)");
+            quantity.append(" WHEN :id").append(i).append(" THEN CAST(:quantity").append(i).append(" AS INT)");
+            if (i > 0) ids.append(", ");
+            ids.append(":id").append(i);
+        }
+        var sql = "UPDATE product SET price = " + price + " END, quantity = " + quantity + " END, " +
+                "version = version + 1, last_modified = CURRENT_TIMESTAMP WHERE id IN (" + ids + ")";
+
+        var spec = databaseClient.sql(sql);
+        for (int i = 0; i < products.size(); i++) {
+            Product p = products.get(i);
+            spec = spec.bind("id" + i, p.getId());
+            spec = bind(spec, "price" + i, p.getPrice(), Double.class);
+            spec = bind(spec, "quantity" + i, p.getQuantity(), Integer.class);
+        }
+        return spec.fetch().rowsUpdated();
+    }
+
+    @Override
+    public Mono<Product> findByIdWithManufacturer(Long id) {
+        return databaseClient.sql("""
+                        SELECT p.id, p.title, p.price, p.quantity, p.active, p.creation_date, p.manufacturer_id,
+                               p.version, p.last_modified, m.name, m.country, m.foundation_year
+                        FROM product p
+                        LEFT JOIN manufacturer m ON m.id = p.manufacturer_id
+                        WHERE p.id = :id
+                        """)
+                .bind("id", id)
+                .map(row -> {
+                    Long manufacturerId = row.get("manufacturer_id", Long.class);
+                    return Product.builder()
+                            .id(row.get("id", Long.class))
+                            .title(row.get("title", String.class))
+                            .price(row.get("price", Double.class))
+                            .quantity(row.get("quantity", Integer.class))
+                            .active(row.get("active", Boolean.class))
+                            .creationDate(row.get("creation_date", LocalDateTime.class))
+                            .manufacturerId(manufacturerId)
+                            .version(row.get("version", Long.class))
+                            .lastModified(row.get("last_modified", LocalDateTime.class))
+                            .manufacturer(manufacturerId == null ? null : Manufacturer.builder()
+                                    .id(manufacturerId)
+                                    .name(row.get("name", String.class))
+                                    .country(row.get("country", String.class))
+                                    .foundationYear(row.get("foundation_year", Integer.class))
+                                    .build())
+                            .build();
+                })
+                .one();
+    }
+
+    private static DatabaseClient.GenericExecuteSpec bind(DatabaseClient.GenericExecuteSpec spec, String name, Object value, Class<?> type) {
+        return value == null ? spec.bindNull(name, type) : spec.bind(name, value);
+    }
+
+    // creationDate -> creation_date
+    private static String toColumn(String field) {
+        return field.replaceAll("([A-Z])", "_$1").toLowerCase();
+    }
+}
@@ -0,0 +1,118 @@
+package com.certidevs.route;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.HandlerFilterFunction;
+import org.springframework.web.reactive.function.server.HandlerFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Log de acceso muestreado y asíncrono para las rutas funcionales, sustituye al log INFO de cada petición
+ *
+ * * Solo se registra una fracción de las peticiones (products.access-log.sample-rate), los errores 5xx siempre.
+ *   Las canceladas por el cliente se registran con status 499, muestreadas como el resto de no 5xx
+ * * Las peticiones que no se registran no construyen strings ni pasan por el buffer, solo reservan
+ *   el envoltorio de la respuesta que avisa al terminar de escribirla (CompletionAwareResponse)
+ * * Las registradas se guardan en un buffer circular de tamaño fijo (buffer-size) y un hilo aparte las escribe en el log
+ *   cada flush-interval: los hilos de Netty nunca esperan al log. Si el buffer está lleno se descartan y se cuentan
+ * * Campos estructurados (method, route, path, status, duration_us) con el API fluent de SLF4J,
+ *   salen como campos JSON con logging.structured.format.console=ecs o logstash
+ */
+@Slf4j
+@Component
+public class AccessLogFilter implements HandlerFilterFunction<ServerResponse, ServerResponse> {
+
+    private record Entry(long timestamp, HttpMethod method, Object route, String path, int status, long durationMicros) {
+    }
+
+    private final double sampleRate;
+    private final ArrayBlockingQueue<Entry> buffer;
+    private final AtomicLong dropped = new AtomicLong();
+    private final Scheduler writer = Schedulers.newSingle("access-log");
+    private final Disposable flushing;
+
+    public AccessLogFilter(
+            @Value("${products.access-log.sample-rate:0.01}") double sampleRate,
+            @Value("${products.access-log.buffer-size:4096}") int bufferSize,
+            @Value("${products.access-log.flush-interval:200ms}") Duration flushInterval) {
+        this.sampleRate = sampleRate;
+        this.buffer = new ArrayBlockingQueue<>(bufferSize);
+        this.flushing = Flux.interval(flushInterval, writer)
+                .subscribe(tick -> drain());
+    }
+
+    @Override
+    public Mono<ServerResponse> filter(ServerRequest request, HandlerFunction<ServerResponse> next) {
+        long start = System.nanoTime();
+        return next.handle(request)
+                .map(response -> (ServerResponse) new CompletionAwareResponse(response, status ->
+                        completed(request, status, start)))
+                .doOnError(e -> completed(request, 500, start))
+                // cancelada antes de tener respuesta; doFinally no se repite si ya había terminado
+                .doFinally(signal -> {
+                    if (signal == SignalType.CANCEL)
+                        completed(request, CompletionAwareResponse.CLIENT_CLOSED_REQUEST, start);
+                });
+    }
+
+    private void completed(ServerRequest request, int status, long start) {
+        if (status < 500 && ThreadLocalRandom.current().nextDouble() >= sampleRate)
+            return;
+        var entry = new Entry(
+                System.currentTimeMillis(),
+                request.method(),
+                request.attribute(RouterFunctions.MATCHING_PATTERN_ATTRIBUTE).orElse(null),
+                request.requestPath().value(),
+                status,
+                TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+        if (!buffer.offer(entry))
+            dropped.incrementAndGet();
+    }
+
+    // se ejecuta siempre en el hilo access-log
+    private void drain() {
+        Entry entry;
+        while ((entry = buffer.poll()) != null)
+            log.atInfo()
+                    .setMessage("{} {} {} {}us")
+                    .addArgument(entry.method())
+                    .addArgument(entry.path())
+                    .addArgument(entry.status())
+                    .addArgument(entry.durationMicros())
+                    .addKeyValue("timestamp", entry.timestamp())
+                    .addKeyValue("method", entry.method())
+                    .addKeyValue("route", entry.route())
+                    .addKeyValue("path", entry.path())
+                    .addKeyValue("status", entry.status())
+                    .addKeyValue("duration_us", entry.durationMicros())
+                    .log();
+
+        long lost = dropped.getAndSet(0);
+        if (lost > 0)
+            log.warn("Access log: {} entradas descartadas por buffer lleno", lost);
+    }
+
+    @PreDestroy
+    public void close() {
+        flushing.dispose();
+        writer.schedule(this::drain);
+        writer.disposeGracefully().block(Duration.ofSeconds(5));
+    }
+}
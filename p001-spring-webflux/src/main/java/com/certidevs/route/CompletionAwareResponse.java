@@ -0,0 +1,68 @@
+package com.certidevs.route;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.ResponseCookie;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+/**
+ * ServerResponse que avisa cuando termina de escribirse el cuerpo
+ *
+ * En las rutas funcionales el handler solo construye la respuesta, el Flux del cuerpo (consultas a base de datos...)
+ * se ejecuta al escribirla: para medir la petición completa hay que esperar a writeTo.
+ * Si el cliente cierra la conexión antes de terminar se avisa con CLIENT_CLOSED_REQUEST (499, como nginx)
+ */
+class CompletionAwareResponse implements ServerResponse {
+
+    static final int CLIENT_CLOSED_REQUEST = 499;
+
+    interface Listener {
+        // status de la respuesta escrita, 500 si ha fallado al escribirla o CLIENT_CLOSED_REQUEST si se ha cancelado
+        void completed(int status);
+    }
+
+    private final ServerResponse delegate;
+    private final Listener listener;
+
+    CompletionAwareResponse(ServerResponse delegate, Listener listener) {
+        this.delegate = delegate;
+        this.listener = listener;
+    }
+
+    @Override
+    public HttpStatusCode statusCode() {
+        return delegate.statusCode();
+    }
+
+    // obligatorio mientras siga en la interfaz, deprecated for removal desde Spring 6.0
+    @Override
+    @Deprecated
+    @SuppressWarnings("removal")
+    public int rawStatusCode() {
+        return delegate.statusCode().value();
+    }
+
+    @Override
+    public HttpHeaders headers() {
+        return delegate.headers();
+    }
+
+    @Override
+    public MultiValueMap<String, ResponseCookie> cookies() {
+        return delegate.cookies();
+    }
+
+    @Override
+    public Mono<Void> writeTo(ServerWebExchange exchange, Context context) {
+        // doFinally avisa una sola vez aunque llegue una cancelación después de terminar
+        return delegate.writeTo(exchange, context)
+                .doFinally(signal -> listener.completed(switch (signal) {
+                    case ON_COMPLETE -> delegate.statusCode().value();
+                    case CANCEL -> CLIENT_CLOSED_REQUEST;
+                    default -> 500;
+                }));
+    }
+}
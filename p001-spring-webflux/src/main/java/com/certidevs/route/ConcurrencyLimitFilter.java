@@ -0,0 +1,185 @@
+package com.certidevs.route;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Límite adaptativo de peticiones en curso (estilo gradient/Vegas) para /api/products y /api/route/products
+ *
+ * Es un WebFilter para cubrir a la vez el controlador y las rutas funcionales:
+ *
+ * * Cada window peticiones completadas se calcula la latencia media de la ventana (corta) y se compara con una media
+ *   lenta (larga). Si la corta supera la larga * tolerance el límite baja, si no sube en sqrt(límite)
+ * * El límite solo sube si en la ventana se ha usado al menos la mitad, sin carga no crece indefinidamente
+ * * Sobre el límite se responde 503 con Retry-After en lugar de encolar
+ * * Prioridades: las lecturas pueden usar todo el límite, las escrituras el 90% y las escrituras masivas (bulk) el 50%,
+ *   con el servicio saturado se rechazan antes las escrituras masivas que las lecturas
+ * * No se limitan los endpoints de streams (SSE / NDJSON): duran lo que dure la conexión y desvirtuarían la latencia.
+ *   Se eligen por ruta, no por la cabecera Accept: un cliente no puede saltarse el límite pidiendo un stream
+ * * Métricas products.concurrency.limit, products.concurrency.in-flight y products.concurrency.rejected por prioridad
+ */
+@Component
+public class ConcurrencyLimitFilter implements WebFilter {
+
+    enum Priority {
+        READ(1.0), WRITE(0.9), BULK(0.5);
+
+        final double share;
+
+        Priority(double share) {
+            this.share = share;
+        }
+    }
+
+    // rutas de productos limitadas: las de ProductController y las funcionales de ProductRouter
+    private static final List<String> LIMITED_PREFIXES = List.of("/api/products", "/api/route/products");
+
+    // endpoints de ProductController que solo producen streams (produces NDJSON / SSE)
+    private static final Set<String> STREAMS = Set.of("/api/products/export", "/api/products/low-stock");
+
+    // peso de cada ventana en la media lenta de latencia
+    private static final double LONG_RTT_ALPHA = 0.05;
+
+    private final boolean enabled;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final double smoothing;
+    private final int window;
+    private final String retryAfter;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile double limit;
+    private final Map<Priority, Counter> rejected = new EnumMap<>(Priority.class);
+
+    // ventana actual, solo se modifica dentro de onSample (synchronized)
+    private long windowRttSum;
+    private int windowSamples;
+    private int windowMaxInFlight;
+    private double longRtt;
+
+    public ConcurrencyLimitFilter(
+            MeterRegistry meterRegistry,
+            @Value("${products.concurrency-limit.enabled:true}") boolean enabled,
+            @Value("${products.concurrency-limit.initial:100}") int initialLimit,
+            @Value("${products.concurrency-limit.min:10}") int minLimit,
+            @Value("${products.concurrency-limit.max:1000}") int maxLimit,
+            @Value("${products.concurrency-limit.tolerance:1.5}") double tolerance,
+            @Value("${products.concurrency-limit.smoothing:0.2}") double smoothing,
+            @Value("${products.concurrency-limit.window:50}") int window,
+            @Value("${products.concurrency-limit.retry-after:1s}") Duration retryAfter) {
+        this.enabled = enabled;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.smoothing = smoothing;
+        this.window = window;
+        this.retryAfter = String.valueOf(Math.max(1, retryAfter.toSeconds()));
+        this.limit = Math.clamp(initialLimit, minLimit, maxLimit);
+
+        Gauge.builder("products.concurrency.limit", this, ConcurrencyLimitFilter::limit)
+                .description("Límite adaptativo de peticiones en curso")
+                .register(meterRegistry);
+        Gauge.builder("products.concurrency.in-flight", inFlight, AtomicInteger::get)
+                .description("Peticiones en curso sujetas al límite")
+                .register(meterRegistry);
+        for (Priority priority : Priority.values())
+            rejected.put(priority, Counter.builder("products.concurrency.rejected")
+                    .description("Peticiones rechazadas con 503 por superar el límite de concurrencia")
+                    .tag("priority", priority.name().toLowerCase())
+                    .register(meterRegistry));
+    }
+
+    public double limit() {
+        return limit;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        if (!enabled || !limited(request))
+            return chain.filter(exchange);
+
+        Priority priority = priority(request);
+        int current = inFlight.incrementAndGet();
+        if (current > Math.max(1, (int) (limit * priority.share))) {
+            inFlight.decrementAndGet();
+            rejected.get(priority).increment();
+            exchange.getResponse().setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+            exchange.getResponse().getHeaders().set(HttpHeaders.RETRY_AFTER, retryAfter);
+            return exchange.getResponse().setComplete();
+        }
+
+        long start = System.nanoTime();
+        return chain.filter(exchange)
+                .doFinally(signal -> {
+                    inFlight.decrementAndGet();
+                    // una petición cancelada por el cliente no dice nada de la latencia del servicio
+                    if (signal != SignalType.CANCEL)
+                        onSample(System.nanoTime() - start, current);
+                });
+    }
+
+    private static boolean limited(ServerHttpRequest request) {
+        String path = request.getPath().pathWithinApplication().value();
+        // por segmentos, como EndpointMetricsFilter: /api/productsX no es una ruta de productos
+        boolean products = LIMITED_PREFIXES.stream()
+                .anyMatch(prefix -> path.equals(prefix) || path.startsWith(prefix + "/"));
+        return products && !STREAMS.contains(path);
+    }
+
+    static Priority priority(ServerHttpRequest request) {
+        HttpMethod method = request.getMethod();
+        if (method == HttpMethod.GET || method == HttpMethod.HEAD || method == HttpMethod.OPTIONS)
+            return Priority.READ;
+        return request.getPath().value().endsWith("/bulk") ? Priority.BULK : Priority.WRITE;
+    }
+
+    /**
+     * Registra la latencia de una petición completada y el número de peticiones en curso cuando empezó,
+     * al completar la ventana recalcula el límite
+     */
+    synchronized void onSample(long rttNanos, int inFlightAtStart) {
+        windowRttSum += rttNanos;
+        windowSamples++;
+        windowMaxInFlight = Math.max(windowMaxInFlight, inFlightAtStart);
+        if (windowSamples < window)
+            return;
+
+        double shortRtt = (double) windowRttSum / windowSamples;
+        boolean appLimited = windowMaxInFlight < limit / 2;
+        windowRttSum = 0;
+        windowSamples = 0;
+        windowMaxInFlight = 0;
+
+        longRtt = longRtt == 0 ? shortRtt : longRtt * (1 - LONG_RTT_ALPHA) + shortRtt * LONG_RTT_ALPHA;
+        // tras una degradación la media lenta queda alta: se acerca antes a la latencia actual cuando ya se ha recuperado
+        if (longRtt > shortRtt * 2)
+            longRtt *= 0.95;
+        if (appLimited)
+            return;
+
+        double gradient = Math.clamp(tolerance * longRtt / shortRtt, 0.5, 1.0);
+        double newLimit = limit * gradient + Math.sqrt(limit);
+        limit = Math.clamp(limit * (1 - smoothing) + newLimit * smoothing, minLimit, maxLimit);
+    }
+}
@@ -0,0 +1,144 @@
+package com.certidevs.route;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.HandlerMapping;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import org.springframework.web.util.pattern.PathPattern;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Métricas de todos los endpoints de productos para comparar el controlador anotado (/api/products, stack=annotated)
+ * con las rutas funcionales (/api/route/products, stack=functional) con las mismas series:
+ *
+ * * products.http.requests: timer con histograma por stack, patrón de ruta, método y outcome
+ * * products.http.in-flight: peticiones en curso por stack
+ * * products.http.outcomes: respuestas por stack y outcome (2xx, 404, 409, resto de 4xx, 5xx...).
+ *   Las peticiones canceladas por el cliente van aparte con outcome cancelled, como en RepositoryTimingInterceptor
+ *
+ * Va antes que ConcurrencyLimitFilter para contar también los 503 del límite de concurrencia.
+ * Los Timer se crean la primera vez y se guardan por clave, sin crear etiquetas por petición.
+ */
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+@Component
+public class EndpointMetricsFilter implements WebFilter {
+
+    enum Stack {
+        ANNOTATED("/api/products"), FUNCTIONAL("/api/route/products");
+
+        final String prefix;
+        final String tag = name().toLowerCase();
+
+        Stack(String prefix) {
+            this.prefix = prefix;
+        }
+    }
+
+    // sin patrón: ninguna ruta ha aceptado la petición (404 sin handler, 503 del límite de concurrencia...)
+    private static final String UNMATCHED = "UNKNOWN";
+    static final String CANCELLED = "cancelled";
+
+    private record Key(Stack stack, String route, String method, String outcome) {
+    }
+
+    private final MeterRegistry meterRegistry;
+    private final Map<Stack, AtomicInteger> inFlight = new ConcurrentHashMap<>();
+    private final Map<Key, Timer> timers = new ConcurrentHashMap<>();
+    private final Map<Key, Counter> outcomes = new ConcurrentHashMap<>();
+
+    public EndpointMetricsFilter(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        for (Stack stack : Stack.values()) {
+            var count = new AtomicInteger();
+            inFlight.put(stack, count);
+            Gauge.builder("products.http.in-flight", count, AtomicInteger::get)
+                    .description("Peticiones en curso a los endpoints de productos")
+                    .tag("stack", stack.tag)
+                    .register(meterRegistry);
+        }
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        Stack stack = stack(exchange.getRequest().getPath().pathWithinApplication().value());
+        if (stack == null)
+            return chain.filter(exchange);
+
+        AtomicInteger count = inFlight.get(stack);
+        count.incrementAndGet();
+        long start = System.nanoTime();
+        return chain.filter(exchange)
+                .doOnSuccess(v -> record(exchange, stack, start, outcome(status(exchange, null))))
+                .doOnError(e -> record(exchange, stack, start, outcome(status(exchange, e))))
+                // doFinally no se repite: una cancelación después de terminar no se cuenta otra vez
+                .doFinally(signal -> {
+                    count.decrementAndGet();
+                    if (signal == SignalType.CANCEL)
+                        record(exchange, stack, start, CANCELLED);
+                });
+    }
+
+    private static Stack stack(String path) {
+        // /api/route/products no empieza por /api/products, el orden da igual
+        for (Stack stack : Stack.values())
+            if (path.equals(stack.prefix) || path.startsWith(stack.prefix + "/"))
+                return stack;
+        return null;
+    }
+
+    private void record(ServerWebExchange exchange, Stack stack, long start, String outcome) {
+        long elapsedNanos = System.nanoTime() - start;
+        Object pattern = exchange.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String route = pattern instanceof PathPattern pathPattern ? pathPattern.getPatternString() : UNMATCHED;
+
+        var key = new Key(stack, route, exchange.getRequest().getMethod().name(), outcome);
+        timers.computeIfAbsent(key, k -> Timer.builder("products.http.requests")
+                        .description("Latencia de los endpoints de productos hasta completar la respuesta")
+                        .tag("stack", k.stack().tag)
+                        .tag("route", k.route())
+                        .tag("method", k.method())
+                        .tag("outcome", k.outcome())
+                        .publishPercentileHistogram()
+                        .register(meterRegistry))
+                .record(elapsedNanos, TimeUnit.NANOSECONDS);
+        outcomes.computeIfAbsent(new Key(stack, null, null, outcome), k -> Counter.builder("products.http.outcomes")
+                        .description("Respuestas de los endpoints de productos por resultado")
+                        .tag("stack", k.stack().tag)
+                        .tag("outcome", k.outcome())
+                        .register(meterRegistry))
+                .increment();
+    }
+
+    // los errores llegan aquí antes que los WebExceptionHandler que los convierten en respuesta
+    private static int status(ServerWebExchange exchange, Throwable error) {
+        if (error instanceof ResponseStatusException statusException)
+            return statusException.getStatusCode().value();
+        if (error != null)
+            return 500;
+        HttpStatusCode status = exchange.getResponse().getStatusCode();
+        return status == null ? 200 : status.value();
+    }
+
+    // 404 (no existe) y 409 (conflicto de título) por separado, el resto por familia
+    static String outcome(int status) {
+        return switch (status) {
+            case 404, 409 -> String.valueOf(status);
+            default -> (status / 100) + "xx";
+        };
+    }
+}
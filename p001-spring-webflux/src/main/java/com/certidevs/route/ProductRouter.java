@@ -1,7 +1,9 @@
 package com.certidevs.route;
 
 import com.certidevs.handler.ProductHandler;
+import com.certidevs.security.JwtAuthFilter;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpStatus;
@@ -25,25 +27,34 @@ import org.springframework.web.reactive.function.server.ServerResponse;
 public class ProductRouter {
 
     @Bean
-    public RouterFunction<ServerResponse> route(ProductHandler handler) {
+    public RouterFunction<ServerResponse> route(ProductHandler handler,
+                                                AccessLogFilter accessLogFilter,
+                                                ObjectProvider<JwtAuthFilter> jwtAuthFilter) {
 
-        HandlerFilterFunction<ServerResponse, ServerResponse> loggingFilter = (request, next) -> {
-            log.info("Request: {} {}", request.method(), request.uri());
-            return next.handle(request).doOnNext(response -> {
-                log.info("Response status {}", response.statusCode());
-            });
-        };
+        // Versión anterior: dos líneas INFO por petición construyendo la URI completa en los hilos de Netty,
+        // sustituido por AccessLogFilter (muestreado y asíncrono); la latencia por ruta la mide EndpointMetricsFilter
+//        HandlerFilterFunction<ServerResponse, ServerResponse> loggingFilter = (request, next) -> {
+//            log.info("Request: {} {}", request.method(), request.uri());
+//            return next.handle(request).doOnNext(response -> {
+//                log.info("Response status {}", response.statusCode());
+//            });
+//        };
 
-        HandlerFilterFunction<ServerResponse, ServerResponse> authFilter = (request, next) -> {
-            log.info("Request: {} {}", request.method(), request.uri());
-            String authHeader = request.headers().firstHeader("Authorization");
-            if(authHeader != null && authHeader.startsWith("Bearer ")) {
-                // validar token JWT....
-                return next.handle(request);
-            } else {
-                return ServerResponse.status(HttpStatus.UNAUTHORIZED).bodyValue("Unauthorized");
-            }
-        };
+        // Versión anterior: solo comprobaba que la cabecera empezase por "Bearer ",
+        // JwtAuthFilter verifica firma y expiración del token (security.jwt.enabled=true)
+//        HandlerFilterFunction<ServerResponse, ServerResponse> authFilter = (request, next) -> {
+//            String authHeader = request.headers().firstHeader("Authorization");
+//            if(authHeader != null && authHeader.startsWith("Bearer ")) {
+//                // validar token JWT....
+//                return next.handle(request);
+//            } else {
+//                return ServerResponse.status(HttpStatus.UNAUTHORIZED).bodyValue("Unauthorized");
+//            }
+//        };
+        JwtAuthFilter jwt = jwtAuthFilter.getIfAvailable();
+        HandlerFilterFunction<ServerResponse, ServerResponse> authFilter = jwt != null
+                ? jwt
+                : (request, next) -> next.handle(request); // JWT desactivado
 
         return RouterFunctions.route()
                 .path("/api/route/products", builder -> builder
@@ -51,11 +62,14 @@ public class ProductRouter {
                         .GET("", handler::findAll) // con metodo referenciado
                         .GET("/paginated", handler::findAllPaginated) // con metodo referenciado
                         .GET("/paginated-with-generics", handler::findAllPaginatedWithGeneric) // con metodo referenciado
+                        .GET("/paginated-cursor", handler::findAllPaginatedByCursor) // paginación keyset
+                        .GET("/search", handler::search) // índice de títulos en memoria
                         .GET("{id}", handler::findById)
                         .POST("", handler::create)
                         .PUT("{id}", handler::update)
                         .DELETE("{id}", handler::deleteById)
-                        .filter(loggingFilter)
+                        .filter(accessLogFilter)
+                        .filter(authFilter)
                         .onError(IllegalArgumentException.class, (e, serverRequest) -> ServerResponse.badRequest().bodyValue("Invalid input"))
                         .onError(Exception.class, (e, serverRequest) -> ServerResponse.badRequest().bodyValue("Invalid input"))
 
@@ -0,0 +1,15 @@
+package com.certidevs.security;
+
+/**
+ * Token JWT mal formado, con firma incorrecta, caducado o de otro emisor (401)
+ */
+public class InvalidTokenException extends RuntimeException {
+
+    public InvalidTokenException(String message) {
+        super(message);
+    }
+
+    public InvalidTokenException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
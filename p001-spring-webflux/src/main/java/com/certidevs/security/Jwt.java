@@ -0,0 +1,10 @@
+package com.certidevs.security;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Token JWT ya verificado: firma, expiración y emisor correctos
+ */
+public record Jwt(String subject, Instant expiresAt, Map<String, Object> claims) {
+}
@@ -0,0 +1,55 @@
+package com.certidevs.security;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.HandlerFilterFunction;
+import org.springframework.web.reactive.function.server.HandlerFunction;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+
+/**
+ * Filtro de rutas que exige un token JWT válido en la cabecera Authorization: Bearer ...
+ *
+ * El token verificado queda en el atributo JWT_ATTRIBUTE de la petición para los handlers.
+ * Se activa con security.jwt.enabled=true
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "security.jwt.enabled", havingValue = "true")
+public class JwtAuthFilter implements HandlerFilterFunction<ServerResponse, ServerResponse> {
+
+    public static final String JWT_ATTRIBUTE = JwtAuthFilter.class.getName() + ".jwt";
+
+    private final JwtVerifier jwtVerifier;
+
+    public JwtAuthFilter(JwtVerifier jwtVerifier) {
+        this.jwtVerifier = jwtVerifier;
+    }
+
+    @Override
+    public Mono<ServerResponse> filter(ServerRequest request, HandlerFunction<ServerResponse> next) {
+        String authHeader = request.headers().firstHeader(HttpHeaders.AUTHORIZATION);
+        if (authHeader == null || !authHeader.startsWith("Bearer "))
+            return unauthorized("Bearer");
+
+        return jwtVerifier.verify(authHeader.substring(7))
+                .flatMap(jwt -> {
+                    request.attributes().put(JWT_ATTRIBUTE, jwt);
+                    return next.handle(request);
+                })
+                .onErrorResume(InvalidTokenException.class, e -> {
+                    log.debug("Token rechazado: {}", e.getMessage());
+                    return unauthorized("Bearer error=\"invalid_token\"");
+                });
+    }
+
+    private static Mono<ServerResponse> unauthorized(String challenge) {
+        return ServerResponse.status(HttpStatus.UNAUTHORIZED)
+                .header(HttpHeaders.WWW_AUTHENTICATE, challenge)
+                .bodyValue("Unauthorized");
+    }
+}
@@ -0,0 +1,235 @@
+package com.certidevs.security;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.MessageDigest;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.spec.RSAPublicKeySpec;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Verificación de tokens JWT firmados con RS256 contra el JWK set del proveedor de identidad
+ *
+ * * JWK set en memoria: se descarga al arrancar y se refresca en segundo plano cada jwks-refresh.
+ *   Un kid desconocido (rotación de claves) fuerza una recarga, como mucho una cada jwks-min-refresh
+ * * Caché de tokens ya verificados por hash SHA-256 hasta su exp: las siguientes peticiones con el mismo token
+ *   no repiten la verificación RSA ni el parseo JSON. Tamaño máximo token-cache-size (0 la desactiva)
+ *
+ * Solo con JDK y Jackson, sin dependencias de Spring Security.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "security.jwt.enabled", havingValue = "true")
+public class JwtVerifier {
+
+    private static final Base64.Decoder BASE64URL = Base64.getUrlDecoder();
+
+    private final WebClient jwksClient;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final String issuer;
+    private final Duration clockSkew;
+    private final Duration minRefresh;
+    private final Cache<ByteBuffer, Jwt> verified;
+    private final Disposable refreshing;
+
+    // kid -> clave pública, se sustituye entero en cada recarga
+    private volatile Map<String, PublicKey> keys = Map.of();
+    private volatile long lastRefresh;
+    private volatile Mono<Map<String, PublicKey>> inFlightRefresh;
+
+    public JwtVerifier(
+            WebClient jwksClient,
+            @Value("${security.jwt.issuer:}") String issuer,
+            @Value("${security.jwt.clock-skew:30s}") Duration clockSkew,
+            @Value("${security.jwt.jwks-refresh:5m}") Duration refresh,
+            @Value("${security.jwt.jwks-min-refresh:10s}") Duration minRefresh,
+            @Value("${security.jwt.token-cache-size:10000}") long tokenCacheSize) {
+        this.jwksClient = jwksClient;
+        this.issuer = issuer;
+        this.clockSkew = clockSkew;
+        this.minRefresh = minRefresh;
+        this.verified = tokenCacheSize <= 0 ? null : Caffeine.newBuilder()
+                .maximumSize(tokenCacheSize)
+                .expireAfter(new Expiry<ByteBuffer, Jwt>() {
+                    @Override
+                    public long expireAfterCreate(ByteBuffer key, Jwt jwt, long currentTime) {
+                        return Math.max(0, Duration.between(Instant.now(), jwt.expiresAt()).toNanos());
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(ByteBuffer key, Jwt jwt, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+
+                    @Override
+                    public long expireAfterRead(ByteBuffer key, Jwt jwt, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+        this.refreshing = Flux.interval(Duration.ZERO, refresh)
+                .concatMap(tick -> refreshKeys().onErrorResume(e -> {
+                    log.warn("No se ha podido descargar el JWK set", e);
+                    return Mono.empty();
+                }))
+                .subscribe();
+    }
+
+    /**
+     * Verifica el token: desde la caché si ya se verificó antes, si no firma, exp, nbf e iss.
+     * Error InvalidTokenException si no es válido.
+     */
+    public Mono<Jwt> verify(String token) {
+        if (verified == null)
+            return verifyUncached(token);
+
+        ByteBuffer hash = sha256(token);
+        Jwt cached = verified.getIfPresent(hash);
+        if (cached != null)
+            return Mono.just(cached);
+        return verifyUncached(token).doOnNext(jwt -> verified.put(hash, jwt));
+    }
+
+    /**
+     * Verificación completa sin caché de tokens (el JWK set sí está en memoria)
+     */
+    public Mono<Jwt> verifyUncached(String token) {
+        return Mono.defer(() -> {
+            int first = token.indexOf('.');
+            int second = token.indexOf('.', first + 1);
+            if (first < 0 || second < 0 || token.indexOf('.', second + 1) >= 0)
+                return Mono.error(new InvalidTokenException("Token mal formado"));
+
+            JsonNode header = decodeJson(token.substring(0, first));
+            if (!"RS256".equals(header.path("alg").asText()))
+                return Mono.error(new InvalidTokenException("Algoritmo no soportado: " + header.path("alg").asText()));
+            String kid = header.path("kid").asText();
+
+            PublicKey key = keys.get(kid);
+            Mono<PublicKey> keyMono = key != null
+                    ? Mono.just(key)
+                    // clave desconocida: puede que el proveedor haya rotado las claves
+                    : refreshKeysIfAllowed().mapNotNull(refreshed -> refreshed.get(kid))
+                            .switchIfEmpty(Mono.error(new InvalidTokenException("Clave desconocida: " + kid)));
+
+            return keyMono.map(publicKey -> {
+                checkSignature(token, first, second, publicKey);
+                return checkClaims(decodeJson(token.substring(first + 1, second)));
+            });
+        });
+    }
+
+    private void checkSignature(String token, int first, int second, PublicKey publicKey) {
+        try {
+            var signature = Signature.getInstance("SHA256withRSA");
+            signature.initVerify(publicKey);
+            signature.update(token.substring(0, second).getBytes(StandardCharsets.US_ASCII));
+            if (!signature.verify(BASE64URL.decode(token.substring(second + 1))))
+                throw new InvalidTokenException("Firma incorrecta");
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            throw new InvalidTokenException("Firma incorrecta", e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Jwt checkClaims(JsonNode payload) {
+        Instant now = Instant.now();
+        if (!payload.hasNonNull("exp"))
+            throw new InvalidTokenException("Token sin exp");
+        Instant exp = Instant.ofEpochSecond(payload.get("exp").asLong());
+        if (now.minus(clockSkew).isAfter(exp))
+            throw new InvalidTokenException("Token caducado");
+        if (payload.hasNonNull("nbf") && now.plus(clockSkew).isBefore(Instant.ofEpochSecond(payload.get("nbf").asLong())))
+            throw new InvalidTokenException("Token todavía no válido");
+        if (!issuer.isEmpty() && !issuer.equals(payload.path("iss").asText()))
+            throw new InvalidTokenException("Emisor incorrecto");
+        return new Jwt(payload.path("sub").asText(null), exp, mapper.convertValue(payload, Map.class));
+    }
+
+    private JsonNode decodeJson(String base64url) {
+        try {
+            return mapper.readTree(BASE64URL.decode(base64url));
+        } catch (Exception e) {
+            throw new InvalidTokenException("Token mal formado", e);
+        }
+    }
+
+    private Mono<Map<String, PublicKey>> refreshKeysIfAllowed() {
+        if (System.nanoTime() - lastRefresh < minRefresh.toNanos())
+            return Mono.just(keys);
+        return refreshKeys();
+    }
+
+    // las peticiones con kid desconocido que llegan a la vez comparten la misma descarga
+    private Mono<Map<String, PublicKey>> refreshKeys() {
+        var refresh = inFlightRefresh;
+        if (refresh == null) {
+            refresh = jwksClient.get()
+                    .retrieve()
+                    .bodyToMono(JsonNode.class)
+                    .map(JwtVerifier::parseJwks)
+                    .doOnNext(parsed -> {
+                        keys = parsed;
+                        lastRefresh = System.nanoTime();
+                        log.debug("JWK set actualizado: {}", parsed.keySet());
+                    })
+                    .doFinally(signal -> inFlightRefresh = null)
+                    .cache();
+            inFlightRefresh = refresh;
+        }
+        return refresh;
+    }
+
+    static Map<String, PublicKey> parseJwks(JsonNode jwks) {
+        Map<String, PublicKey> parsed = new HashMap<>();
+        for (JsonNode jwk : jwks.path("keys")) {
+            if (!"RSA".equals(jwk.path("kty").asText()) || "enc".equals(jwk.path("use").asText()))
+                continue;
+            try {
+                var spec = new RSAPublicKeySpec(
+                        new BigInteger(1, BASE64URL.decode(jwk.path("n").asText())),
+                        new BigInteger(1, BASE64URL.decode(jwk.path("e").asText())));
+                parsed.put(jwk.path("kid").asText(), KeyFactory.getInstance("RSA").generatePublic(spec));
+            } catch (GeneralSecurityException | IllegalArgumentException e) {
+                log.warn("Clave JWK {} no válida", jwk.path("kid").asText(), e);
+            }
+        }
+        return Map.copyOf(parsed);
+    }
+
+    private static ByteBuffer sha256(String token) {
+        try {
+            return ByteBuffer.wrap(MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        refreshing.dispose();
+    }
+}
@@ -0,0 +1,138 @@
+package com.certidevs.service;
+
+import com.certidevs.config.HedgingPolicy;
+import com.certidevs.dto.RatingDTO;
+import com.certidevs.entity.Manufacturer;
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Caché asíncrona en memoria delante de manufacturerClient y ratingClient
+ *
+ * Usa Caffeine (expulsión W-TinyLFU) sin bloquear: las entradas son CompletableFuture que se adaptan a Mono.
+ *
+ * * TTL por entrada, más corto para respuestas 404 (caché negativa)
+ * * Tamaño máximo: cuando se llena expulsa las entradas menos usadas
+ * * Refresh-ahead: pasado el tiempo de refresco se sigue sirviendo el valor antiguo mientras se recarga en segundo plano
+ * * Las cargas de ratings pasan por ratingHedging (HedgingPolicy): segunda llamada si la primera tarda demasiado
+ * * findAllWithManufacturer comparte la caché de fabricantes y carga los que faltan por lotes (ManufacturerBatchLoader)
+ * * Métricas cache.gets, cache.puts, cache.evictions, cache.load.duration... con el nombre de cada caché
+ */
+@Component
+public class EnrichmentCache {
+
+    private final AsyncLoadingCache<Long, Optional<Manufacturer>> manufacturers;
+    private final AsyncLoadingCache<Long, Optional<List<RatingDTO>>> ratings;
+
+    public EnrichmentCache(
+            WebClient manufacturerClient,
+            WebClient ratingClient,
+            HedgingPolicy ratingHedging,
+            MeterRegistry meterRegistry,
+            @Value("${products.cache.max-size:10000}") long maxSize,
+            @Value("${products.cache.manufacturer.ttl:30m}") Duration manufacturerTtl,
+            @Value("${products.cache.manufacturer.refresh:10m}") Duration manufacturerRefresh,
+            @Value("${products.cache.rating.ttl:5m}") Duration ratingTtl,
+            @Value("${products.cache.rating.refresh:1m}") Duration ratingRefresh,
+            @Value("${products.cache.negative-ttl:1m}") Duration negativeTtl) {
+
+        this.manufacturers = build(maxSize, manufacturerTtl, manufacturerRefresh, negativeTtl,
+                id -> manufacturerClient.get()
+                        .uri("/manufacturers/{id}", id)
+                        .retrieve()
+                        .bodyToMono(Manufacturer.class)
+                        .map(Optional::of)
+                        .onErrorResume(WebClientResponseException.NotFound.class, e -> Mono.just(Optional.empty()))
+                        .defaultIfEmpty(Optional.empty()));
+
+        // un producto sin valoraciones (lista vacía) no es una respuesta negativa, solo el 404
+        this.ratings = build(maxSize, ratingTtl, ratingRefresh, negativeTtl,
+                productId -> ratingHedging.hedge(() -> ratingClient.get()
+                                .uri("/ratings?productId={id}", productId)
+                                .retrieve()
+                                .bodyToFlux(RatingDTO.class)
+                                .collectList())
+                        .map(Optional::of)
+                        .onErrorResume(WebClientResponseException.NotFound.class, e -> Mono.just(Optional.empty())));
+
+        CaffeineCacheMetrics.monitor(meterRegistry, manufacturers, "manufacturers");
+        CaffeineCacheMetrics.monitor(meterRegistry, ratings, "ratings");
+    }
+
+    /**
+     * Fabricante por id, vacío si el microservicio responde 404.
+     * Otros errores no se guardan en caché y se propagan.
+     */
+    public Mono<Manufacturer> manufacturer(Long id) {
+        // suppressCancel: si quien espera cancela (ej: timeout) no se cancela la carga compartida de la caché
+        return Mono.fromFuture(() -> manufacturers.get(id), true)
+                .flatMap(Mono::justOrEmpty);
+    }
+
+    /**
+     * Fabricante por id desde la caché, si no está se carga con loader (ej: ManufacturerBatchLoader::load)
+     * y se guarda con los mismos TTL: vacío como respuesta negativa. Los errores no se guardan y se propagan
+     */
+    public Mono<Manufacturer> manufacturer(Long id, Function<Long, Mono<Manufacturer>> loader) {
+        return Mono.defer(() -> {
+            var future = manufacturers.get(id, (key, executor) -> loader.apply(key)
+                    .map(Optional::of)
+                    .defaultIfEmpty(Optional.empty())
+                    .toFuture());
+            // Caffeine quita la carga fallida después de avisar a quien espera: se quita ya para que
+            // la siguiente consulta vuelva a cargar
+            return Mono.fromFuture(future, true)
+                    .doOnError(e -> manufacturers.asMap().remove(id, future))
+                    .flatMap(Mono::justOrEmpty);
+        });
+    }
+
+    /**
+     * Valoraciones del producto, lista vacía si no tiene o si el microservicio responde 404
+     */
+    public Mono<List<RatingDTO>> ratings(Long productId) {
+        return Mono.fromFuture(() -> ratings.get(productId), true)
+                .map(found -> found.orElse(List.of()));
+    }
+
+    // Optional.empty() es la respuesta negativa (404), se guarda negativeTtl
+    private static <V> AsyncLoadingCache<Long, Optional<V>> build(long maxSize, Duration ttl, Duration refresh,
+                                                                   Duration negativeTtl,
+                                                                   Function<Long, Mono<Optional<V>>> loader) {
+        return Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new Expiry<Long, Optional<V>>() {
+                    @Override
+                    public long expireAfterCreate(Long key, Optional<V> value, long currentTime) {
+                        return (value.isEmpty() ? negativeTtl : ttl).toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(Long key, Optional<V> value, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, value, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(Long key, Optional<V> value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .refreshAfterWrite(refresh)
+                .recordStats()
+                // la carga devuelve un CompletableFuture, no bloquea ningún hilo mientras espera la respuesta HTTP
+                .buildAsync((key, executor) -> loader.apply(key).toFuture());
+    }
+}
@@ -0,0 +1,129 @@
+package com.certidevs.service;
+
+import com.certidevs.entity.Product;
+import com.certidevs.repository.ProductRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Índice en memoria de cantidades de producto ordenado por cantidad, para avisos de stock bajo sin consultar la tabla
+ *
+ * ProductService lo actualiza en cada cambio de cantidad (save, update, reduceQuantity, deleteById, bulkCreate)
+ * y los suscriptores de lowStock reciben los productos en el momento en que bajan del umbral.
+ *
+ * * Al arrancar se carga una vez (ProductIndexLoader), después solo lee la tabla para los productos nuevos de loadNew()
+ * * below(threshold) es el equivalente en memoria de findByQuantityLessThan
+ * * Un suscriptor lento no frena las ventas: si no consume, se descartan sus avisos más antiguos
+ *
+ * Una cantidad cambiada con un UPDATE directo en base de datos no se ve ni se avisa hasta reiniciar:
+ * loadNew() solo añade productos nuevos y no vuelve a leer los que ya tiene.
+ */
+@Component
+public class LowStockIndex {
+
+    static final int SUBSCRIBER_BUFFER = 1000;
+
+    private record Entry(int quantity, long id) {
+    }
+
+    private record Change(Product product, Integer previous) {
+    }
+
+    private final ProductIndexLoader loader;
+
+    private final Map<Long, Integer> quantities = new ConcurrentHashMap<>();
+    private final NavigableSet<Entry> byQuantity = new ConcurrentSkipListSet<>(
+            Comparator.comparingInt(Entry::quantity).thenComparingLong(Entry::id));
+    private final Sinks.Many<Change> changes = Sinks.many().multicast().directBestEffort();
+
+    public LowStockIndex(ProductRepository productRepository) {
+        this.loader = new ProductIndexLoader(productRepository, "de stock");
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        loader.loadOnStartup(this::load);
+    }
+
+    /**
+     * Carga las cantidades de los productos que aún no están en el índice.
+     * No sobrescribe cantidades que ya se hayan actualizado en memoria mientras se cargaba.
+     */
+    public Mono<Long> loadNew() {
+        return loader.loadNew(this::load);
+    }
+
+    private void load(Product product) {
+        if (product.getQuantity() != null)
+            quantities.computeIfAbsent(product.getId(), id -> {
+                byQuantity.add(new Entry(product.getQuantity(), id));
+                return product.getQuantity();
+            });
+    }
+
+    /**
+     * Registra la cantidad actual del producto y avisa a los suscriptores si ha cambiado
+     */
+    public void record(Product product) {
+        if (product.getId() == null)
+            return;
+        if (product.getQuantity() == null) {
+            remove(product.getId());
+            return;
+        }
+        Integer[] previous = new Integer[1];
+        // compute es atómico por producto: el mapa y el conjunto ordenado no se desincronizan con cambios concurrentes
+        quantities.compute(product.getId(), (id, old) -> {
+            previous[0] = old;
+            if (old != null)
+                byQuantity.remove(new Entry(old, id));
+            byQuantity.add(new Entry(product.getQuantity(), id));
+            return product.getQuantity();
+        });
+        if (!product.getQuantity().equals(previous[0]))
+            changes.emitNext(new Change(product, previous[0]), Sinks.EmitFailureHandler.busyLooping(Duration.ofMillis(100)));
+    }
+
+    public void remove(Long id) {
+        quantities.computeIfPresent(id, (k, old) -> {
+            byQuantity.remove(new Entry(old, k));
+            return null;
+        });
+    }
+
+    /**
+     * Ids de productos con cantidad menor que threshold, de menor a mayor cantidad
+     */
+    public Flux<Long> below(int threshold) {
+        return Flux.fromIterable(byQuantity.headSet(new Entry(threshold, Long.MIN_VALUE)))
+                .map(Entry::id);
+    }
+
+    /**
+     * Productos que bajan de threshold a partir de la suscripción.
+     * Un producto que ya estaba por debajo no se repite hasta que se repone y vuelve a bajar.
+     */
+    public Flux<Product> crossings(int threshold) {
+        return changes.asFlux()
+                .filter(change -> change.product().getQuantity() < threshold
+                        && (change.previous() == null || change.previous() >= threshold))
+                .map(Change::product)
+                .onBackpressureBuffer(SUBSCRIBER_BUFFER, BufferOverflowStrategy.DROP_OLDEST);
+    }
+
+    public int size() {
+        return quantities.size();
+    }
+}
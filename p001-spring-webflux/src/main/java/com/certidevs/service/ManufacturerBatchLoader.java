@@ -0,0 +1,104 @@
+package com.certidevs.service;
+
+import com.certidevs.entity.Manufacturer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cargador por lotes de fabricantes (estilo DataLoader)
+ *
+ * En lugar de hacer un GET /manufacturers/{id} por cada producto:
+ *
+ * * Agrupa los ids pedidos en una ventana de tamaño (MAX_BATCH_SIZE) o tiempo (MAX_BATCH_WAIT)
+ * * Lanza una sola petición POST /manufacturers/search por ventana con los ids distintos
+ * * Si un id ya se está pidiendo no se vuelve a pedir, se reutiliza la petición en curso
+ * * Reparte el resultado a todos los que estaban esperando ese id
+ * * Si la petición del lote falla, todos los que esperan reciben el error: un fallo no es "no existe"
+ *   y EnrichmentCache no lo guarda como respuesta negativa
+ */
+@Slf4j
+@Component
+public class ManufacturerBatchLoader {
+
+    static final int MAX_BATCH_SIZE = 50;
+    static final Duration MAX_BATCH_WAIT = Duration.ofMillis(10);
+
+    private final WebClient manufacturerClient;
+
+    // ids pedidos y pendientes de respuesta, cada uno con el sink donde se publicará su fabricante
+    private final Map<Long, Sinks.One<Manufacturer>> inFlight = new ConcurrentHashMap<>();
+    private final Sinks.Many<Long> pendingIds = Sinks.many().unicast().onBackpressureBuffer();
+    private final Disposable batching;
+
+    public ManufacturerBatchLoader(WebClient manufacturerClient) {
+        this.manufacturerClient = manufacturerClient;
+        this.batching = pendingIds.asFlux()
+                .bufferTimeout(MAX_BATCH_SIZE, MAX_BATCH_WAIT)
+                .flatMap(this::loadBatch)
+                .subscribe();
+    }
+
+    /**
+     * Devuelve el fabricante con ese id, vacío si no existe o error si falla la petición del lote
+     */
+    public Mono<Manufacturer> load(Long id) {
+        if (id == null)
+            return Mono.empty();
+
+        return Mono.defer(() -> {
+            var newSink = Sinks.<Manufacturer>one();
+            var sink = inFlight.putIfAbsent(id, newSink);
+            if (sink == null) {
+                // primera vez que se pide este id en la ventana: se encola para el siguiente lote
+                // varios hilos pueden emitir a la vez, se reintenta si hay contención en el sink
+                pendingIds.emitNext(id, Sinks.EmitFailureHandler.busyLooping(Duration.ofMillis(100)));
+                sink = newSink;
+            }
+            return sink.asMono();
+        });
+    }
+
+    private Mono<Void> loadBatch(List<Long> ids) {
+        log.debug("Cargando lote de {} fabricantes", ids.size());
+        return manufacturerClient.post()
+                .uri("/manufacturers/search")
+                .bodyValue(ids)
+                .retrieve()
+                .bodyToFlux(Manufacturer.class)
+                .collectMap(Manufacturer::getId)
+                .doOnNext(manufacturers -> ids.forEach(id -> {
+                    var sink = inFlight.remove(id);
+                    if (sink == null) return;
+                    var manufacturer = manufacturers.get(id);
+                    if (manufacturer != null)
+                        sink.tryEmitValue(manufacturer);
+                    else
+                        sink.tryEmitEmpty();
+                }))
+                .then()
+                .onErrorResume(e -> {
+                    log.warn("Error cargando lote de fabricantes {}", ids, e);
+                    ids.forEach(id -> {
+                        var sink = inFlight.remove(id);
+                        if (sink != null)
+                            sink.tryEmitError(e);
+                    });
+                    return Mono.empty();
+                });
+    }
+
+    @PreDestroy
+    public void close() {
+        batching.dispose();
+    }
+}
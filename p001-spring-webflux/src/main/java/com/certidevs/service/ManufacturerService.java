@@ -0,0 +1,36 @@
+package com.certidevs.service;
+
+import com.certidevs.entity.Manufacturer;
+import com.certidevs.repository.ManufacturerRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@Service
+@RequiredArgsConstructor
+public class ManufacturerService {
+
+    private final ManufacturerRepository manufacturerRepository;
+
+    /**
+     * Fabricantes con sus productos
+     *
+     * Versión N+1: una consulta de fabricantes y otra de productos por cada fabricante
+     * (ver ManufacturerWithProductsBenchmark), con muchos fabricantes satura el pool de conexiones:
+     *
+     * manufacturerRepository.findAll()
+     *         .concatMap(manufacturer -> productRepository.findByManufacturerId(manufacturer.getId())
+     *                 .collectList()
+     *                 .map(products -> { manufacturer.setProducts(products); return manufacturer; }))
+     *
+     * Con findAllWithProducts es una sola consulta con JOIN que se agrupa por fabricante según llegan las filas.
+     */
+    public Flux<Manufacturer> findAllWithProducts(int fetchSize) {
+        return manufacturerRepository.findAllWithProducts(fetchSize);
+    }
+
+    public Mono<Manufacturer> findByIdWithProducts(Long id) {
+        return manufacturerRepository.findByIdWithProducts(id);
+    }
+}
@@ -0,0 +1,56 @@
+package com.certidevs.service;
+
+import com.certidevs.entity.Product;
+import com.certidevs.repository.ProductRepository;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+
+import java.util.function.Consumer;
+
+/**
+ * Carga incremental de la tabla product para los índices en memoria (LowStockIndex, TitleSearchIndex)
+ *
+ * Lee por páginas de PAGE_SIZE con paginación keyset sobre la clave primaria (WHERE id > :cursor) y guarda el mayor
+ * id leído: cada loadNew() continúa donde terminó la anterior. Cada índice tiene su propio cargador.
+ */
+@Slf4j
+class ProductIndexLoader {
+
+    static final int PAGE_SIZE = 1000;
+
+    private final ProductRepository productRepository;
+    private final String index;
+
+    // mayor id cargado, loadNew() continúa desde aquí
+    private volatile long lastLoadedId;
+
+    ProductIndexLoader(ProductRepository productRepository, String index) {
+        this.productRepository = productRepository;
+        this.index = index;
+    }
+
+    /**
+     * Carga al arrancar, el resultado solo se registra en el log
+     */
+    void loadOnStartup(Consumer<Product> consumer) {
+        loadNew(consumer).subscribe(
+                count -> log.info("Índice {} cargado con {} productos", index, count),
+                e -> log.warn("No se ha podido cargar el índice {}", index, e));
+    }
+
+    /**
+     * Pasa a consumer los productos con id mayor que el último cargado y devuelve cuántos ha leído
+     */
+    Mono<Long> loadNew(Consumer<Product> consumer) {
+        return Mono.defer(() -> productRepository.findPageAfter(lastLoadedId, PAGE_SIZE).collectList())
+                .expand(page -> page.size() < PAGE_SIZE
+                        ? Mono.empty()
+                        : productRepository.findPageAfter(page.getLast().getId(), PAGE_SIZE).collectList())
+                .flatMapIterable(page -> page)
+                .doOnNext(product -> {
+                    lastLoadedId = Math.max(lastLoadedId, product.getId());
+                    consumer.accept(product);
+                })
+                .count();
+    }
+}
@@ -1,66 +1,320 @@
 package com.certidevs.service;
 
+import com.certidevs.config.UpstreamRejectedException;
+import com.certidevs.dto.BulkImportResult;
+import com.certidevs.dto.ProductSearchHit;
+import com.certidevs.dto.ProductSummary;
 import com.certidevs.dto.RatingDTO;
 import com.certidevs.entity.Manufacturer;
 import com.certidevs.entity.Product;
 import com.certidevs.repository.ProductRepository;
-import lombok.AllArgsConstructor;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
-import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
 
 @Slf4j
 @Service
-@AllArgsConstructor
+@RequiredArgsConstructor
 public class ProductService {
 
     private final ProductRepository productRepository;
-    private final WebClient manufacturerClient;
-    private final WebClient ratingClient;
+    private final ManufacturerBatchLoader manufacturerBatchLoader;
+    private final EnrichmentCache enrichmentCache;
+    private final StockReservationBuffer stockReservationBuffer;
+    private final MeterRegistry meterRegistry;
+    private final LowStockIndex lowStockIndex;
+    private final ProductVersionIndex productVersionIndex;
+    private final ProductWriteBehind productWriteBehind;
+    private final RemoteProductReplica remoteProductReplica;
+    private final TitleSearchIndex titleSearchIndex;
+
+    // límites de peticiones simultáneas por microservicio y tiempo máximo para enriquecer una petición completa
+    @Value("${products.enrichment.manufacturer-concurrency:16}")
+    private int manufacturerConcurrency;
+    @Value("${products.enrichment.rating-concurrency:16}")
+    private int ratingConcurrency;
+    @Value("${products.enrichment.deadline:2s}")
+    private Duration enrichmentDeadline;
+    // reservar stock por lotes en memoria para productos muy demandados (StockReservationBuffer)
+    @Value("${products.stock.reservation-buffer.enabled:false}")
+    private boolean reservationBufferEnabled;
+    // escritura diferida por lotes de save/update si el cliente la pide (ProductWriteBehind)
+    @Value("${products.write-behind.enabled:false}")
+    private boolean writeBehindEnabled;
+    // filas por cada INSERT multi-fila en la carga masiva
+    @Value("${products.bulk.batch-size:500}")
+    private int bulkBatchSize;
+
+    // total de productos cacheado unos segundos para no lanzar un count() en cada página, los errores no se cachean
+    private static final Duration COUNT_TTL = Duration.ofSeconds(10);
+    private final Mono<Long> cachedCount = Mono.defer(this::count)
+            .cache(count -> COUNT_TTL, e -> Duration.ZERO, () -> COUNT_TTL);
 
     public Flux<Product> findAll() {
-        return productRepository.findAll().map(p -> {
-            p.setTitle(p.getTitle().toUpperCase());
-            return p;
-        });
+        return productRepository.findAll()
+                .map(ProductService::titleToUpperCase)
+                .map(this::withAvailableQuantity);
+    }
+
+    /**
+     * Listado con la proyección ProductSummary: no crea entidades Product ni sus campos @Transient por cada fila
+     */
+    public Flux<ProductSummary> findAllSummaries() {
+        return productRepository.findAllSummaries().map(this::withAvailableQuantity);
+    }
+
+    public Flux<ProductSummary> findSummaryPageAfter(Long cursor, Integer size) {
+        return productRepository.findSummaryPageAfter(cursor, size).map(this::withAvailableQuantity);
+    }
+
+    /**
+     * Exportación en streaming del catálogo: solo las columnas pedidas y sin cargar la lista completa en memoria.
+     * limitRate pide a la base de datos de fetchSize en fetchSize según consume el cliente (backpressure).
+     */
+    public Flux<Map<String, Object>> export(List<String> fields, int fetchSize) {
+        return productRepository.streamColumns(fields, fetchSize)
+                .map(this::withAvailableQuantity)
+                .limitRate(fetchSize);
+    }
+
+    private static Product titleToUpperCase(Product p) {
+        p.setTitle(p.getTitle().toUpperCase());
+        return p;
     }
 
     public Mono<Product> findById(Long id) {
-        return productRepository.findById(id);
+        return withVersionIndex(() -> productRepository.findById(id))
+                .map(this::withAvailableQuantity);
+    }
+
+    /**
+     * ETag y Last-Modified del producto si ya se conocen, null si hay que leerlo de base de datos.
+     * Con stock reservado en memoria la cantidad cambia sin cambiar la versión: siempre se lee
+     */
+    public ProductVersionIndex.Validators knownValidators(Long id) {
+        if (stockReservationBuffer.available(id) > 0)
+            return null;
+        return productVersionIndex.get(id);
+    }
+
+    /**
+     * ETag y Last-Modified del producto leído, el ETag incluye el stock reservado en memoria si lo hay
+     */
+    public ProductVersionIndex.Validators validators(Product product) {
+        return ProductVersionIndex.validators(product, stockReservationBuffer.available(product.getId()));
+    }
+
+    // cantidad en base de datos más la que queda reservada en memoria en StockReservationBuffer
+    private Product withAvailableQuantity(Product product) {
+        int reserved = stockReservationBuffer.available(product.getId());
+        if (reserved > 0 && product.getQuantity() != null)
+            product.setQuantity(product.getQuantity() + reserved);
+        return product;
+    }
+
+    private ProductSummary withAvailableQuantity(ProductSummary summary) {
+        int reserved = stockReservationBuffer.available(summary.id());
+        if (reserved == 0 || summary.quantity() == null)
+            return summary;
+        return new ProductSummary(summary.id(), summary.title(), summary.price(), summary.quantity() + reserved, summary.active());
+    }
+
+    // en la exportación solo se puede sumar si se han pedido id y quantity
+    private Map<String, Object> withAvailableQuantity(Map<String, Object> row) {
+        if (row.get("id") instanceof Long id && row.get("quantity") instanceof Integer quantity) {
+            int reserved = stockReservationBuffer.available(id);
+            if (reserved > 0)
+                row.put("quantity", quantity + reserved);
+        }
+        return row;
+    }
+
+    // guarda en ProductVersionIndex la versión del producto leído o escrito
+    private Mono<Product> withVersionIndex(Supplier<Mono<Product>> query) {
+        return Mono.defer(() -> {
+            long epoch = productVersionIndex.epoch();
+            return query.get().doOnNext(product -> productVersionIndex.record(product, epoch));
+        });
     }
 
     public Mono<Boolean> existsById(Long id) {
         return productRepository.existsById(id);
     }
 
+    /**
+     * Alta con la durabilidad pedida: SYNC o, con write-behind activo y sitio en la cola, por lotes (ProductWriteBehind)
+     */
+    public Mono<Product> save(Product product, WriteDurability durability) {
+        if (!useWriteBehind(durability))
+            return save(product);
+        return productWriteBehind.insert(product, durability);
+    }
+
+    private boolean useWriteBehind(WriteDurability durability) {
+        return writeBehindEnabled && durability != WriteDurability.SYNC && !productWriteBehind.isFull();
+    }
+
     public Mono<Product> save(Product product) {
+        // alta siempre: con id o version en el cuerpo Spring Data haría un UPDATE (y fallaría con 409)
+        product.setId(null);
+        product.setVersion(null);
         product.setActive(true);
         product.setCreationDate(LocalDateTime.now());
-        return productRepository.save(product);
+        product.setLastModified(product.getCreationDate());
+        return withVersionIndex(() -> productRepository.save(product))
+                .doOnNext(lowStockIndex::record)
+                .doOnNext(titleSearchIndex::record);
+    }
+
+    /**
+     * Carga masiva: agrupa los productos en INSERT multi-fila de bulkBatchSize filas.
+     *
+     * Si un lote falla se reintenta fila a fila para insertar las válidas
+     * e informar de cada fila con título duplicado sin abortar el resto de la carga.
+     */
+    public Mono<BulkImportResult> bulkCreate(Flux<Product> products) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            var stats = new BulkImportStats();
+            return products
+                    .index()
+                    .doOnNext(tuple -> {
+                        Product p = tuple.getT2();
+                        p.setId(null);
+                        p.setActive(true);
+                        p.setCreationDate(LocalDateTime.now());
+                    })
+                    .buffer(bulkBatchSize)
+                    .concatMap(batch -> insertBatch(batch, stats))
+                    // el INSERT multi-fila no devuelve los ids: se añaden a los índices los productos nuevos
+                    .then(lowStockIndex.loadNew())
+                    .then(titleSearchIndex.loadNew())
+                    .then(Mono.fromSupplier(() -> stats.toResult(System.nanoTime() - start)));
+        });
+    }
+
+    private Mono<Void> insertBatch(List<Tuple2<Long, Product>> batch, BulkImportStats stats) {
+        stats.received += batch.size();
+        stats.batches++;
+        var products = batch.stream().map(Tuple2::getT2).toList();
+        return productRepository.insertBatch(products)
+                .doOnNext(inserted -> stats.inserted += inserted)
+                // el lote completo ha fallado: fila a fila para saber cuáles son
+                .onErrorResume(e -> Flux.fromIterable(batch)
+                        .concatMap(row -> productRepository.insertBatch(List.of(row.getT2()))
+                                .doOnNext(inserted -> stats.inserted += inserted)
+                                .onErrorResume(rowError -> {
+                                    stats.reject(row, rowError);
+                                    return Mono.empty();
+                                }))
+                        .then(Mono.empty()))
+                .then();
+    }
+
+    // sin sincronizar: concatMap procesa un lote (y sus filas) cuando ha terminado el anterior, los cambios no se solapan
+    // aunque cada lote pueda ejecutarse en un hilo distinto; las señales de Reactor publican los cambios al siguiente
+    private static class BulkImportStats {
+        long received, inserted, conflictCount, errorCount, batches;
+        final List<BulkImportResult.RejectedRow> conflicts = new ArrayList<>();
+        final List<BulkImportResult.RejectedRow> errors = new ArrayList<>();
+
+        void reject(Tuple2<Long, Product> row, Throwable e) {
+            boolean conflict = e instanceof DuplicateKeyException;
+            if (conflict) conflictCount++; else errorCount++;
+            var rejected = conflict ? conflicts : errors;
+            if (rejected.size() < BulkImportResult.MAX_REPORTED_ROWS)
+                rejected.add(new BulkImportResult.RejectedRow(row.getT1(), row.getT2().getTitle(),
+                        conflict ? "Título duplicado" : e.getMessage()));
+        }
+
+        BulkImportResult toResult(long elapsedNanos) {
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+            double rowsPerSecond = elapsedNanos == 0 ? 0 : inserted * 1_000_000_000.0 / elapsedNanos;
+            return new BulkImportResult(received, inserted, conflictCount, errorCount, batches,
+                    elapsedMillis, rowsPerSecond, conflicts, errors);
+        }
+    }
+
+    /**
+     * Modificación con la durabilidad pedida. Si el producto ya tiene una modificación en cola va siempre a la cola
+     * (SYNC como FLUSHED) aunque esté llena: escrita directamente, el flush la sobrescribiría después con la anterior
+     */
+    public Mono<Product> update(Long id, Product product, WriteDurability durability) {
+        if (writeBehindEnabled && productWriteBehind.isPending(id))
+            return productWriteBehind.update(id, product,
+                    durability == WriteDurability.SYNC ? WriteDurability.FLUSHED : durability);
+        if (!useWriteBehind(durability))
+            return updateNow(id, product);
+        return productWriteBehind.update(id, product, durability);
     }
 
     public Mono<Product> update(Long id, Product product) {
-        return productRepository.findById(id)
+        return update(id, product, WriteDurability.SYNC);
+    }
+
+    private Mono<Product> updateNow(Long id, Product product) {
+        // el stock reservado en memoria se devuelve antes: sumarlo después a la cantidad nueva crearía stock que no existe
+        return stockReservationBuffer.release(id).then(withVersionIndex(() -> productRepository.findById(id)
                 .flatMap(productDB -> {
                     productDB.setPrice(product.getPrice());
                     productDB.setQuantity(product.getQuantity());
+                    productDB.setLastModified(LocalDateTime.now());
                     // BeanUtils.copyProperties(product, productDB);
                     return productRepository.save(productDB);
-                });
+                })))
+                .doOnNext(lowStockIndex::record)
+                .doOnNext(titleSearchIndex::record);
     }
 
     public Mono<Void> deleteById(Long id) {
-        return productRepository.deleteById(id);
+        return productRepository.deleteById(id)
+                .doOnSuccess(v -> {
+                    lowStockIndex.remove(id);
+                    productVersionIndex.invalidate(id);
+                    titleSearchIndex.remove(id);
+                });
+    }
+
+    /**
+     * Búsqueda por palabras, prefijo o aproximada en los títulos (TitleSearchIndex), sin consultar la tabla
+     */
+    public Flux<ProductSearchHit> search(String query, int limit) {
+        return Flux.defer(() -> Flux.fromIterable(titleSearchIndex.search(query, limit)));
+    }
+
+    /**
+     * Avisos de stock bajo: primero los productos que ya están por debajo de threshold
+     * y después cada producto que baja del umbral según se producen los cambios.
+     *
+     * No consulta la tabla con findByQuantityLessThan, usa LowStockIndex y solo lee por id los productos a enviar.
+     * Un producto que baja del umbral mientras se envía la lista inicial puede llegar dos veces.
+     */
+    public Flux<Product> lowStock(int threshold) {
+        Flux<Product> current = lowStockIndex.below(threshold)
+                .collectList()
+                .flatMapMany(productRepository::findAllById)
+                .map(this::withAvailableQuantity);
+        // merge se suscribe primero a los cambios para no perder los que ocurran durante la lista inicial
+        return Flux.merge(lowStockIndex.crossings(threshold), current);
     }
 
     public Flux<Product> increasePriceOfActiveProducts(Double percentage) {
@@ -73,14 +327,15 @@ public class ProductService {
 //                    return productRepository.save(p);
 //                });
 
-        return productRepository.findByActiveTrue()
-                .map(p -> {
-                    double price = p.getPrice() != null ? p.getPrice() : 0.0;
-                    double newPrice = price * (1 + percentage / 100);
-                    p.setPrice(newPrice);
-                    return p;
-                }).collectList()
-                .flatMapMany(productRepository::saveAll);
+        // Carga todos los productos activos en memoria y hace un UPDATE por producto
+//        return productRepository.findByActiveTrue()
+//                .map(p -> {
+//                    double price = p.getPrice() != null ? p.getPrice() : 0.0;
+//                    double newPrice = price * (1 + percentage / 100);
+//                    p.setPrice(newPrice);
+//                    return p;
+//                }).collectList()
+//                .flatMapMany(productRepository::saveAll);
 
 //        return productRepository.findByActiveTrue()
 //                .map(p -> {
@@ -91,52 +346,128 @@ public class ProductService {
 //                }).buffer(100)
 //                .flatMap(productRepository::saveAll);
 
+        // Un solo UPDATE en base de datos que devuelve las filas que ha modificado, en streaming y sin collectList
+        return productRepository.increasePriceOfActiveReturning(percentage)
+                .map(this::withAvailableQuantity)
+                .doFinally(signal -> productVersionIndex.invalidateAll());
     }
 
     public Mono<Void> increasePriceOfActiveProductsVoid(Double percentage) {
-        return productRepository.findByActiveTrue()
-                .map(p -> {
-                    double price = p.getPrice() != null ? p.getPrice() : 0.0;
-                    double newPrice = price * (1 + percentage / 100);
-                    p.setPrice(newPrice);
-                    return p;
-                }).collectList()
-                .flatMapMany(productRepository::saveAll)
-                .then();
+        return increasePriceOfActive(percentage).then();
+    }
+
+    // el UPDATE en bloque cambia la versión de muchas filas sin devolverlas: se invalida el índice de versiones
+    private Mono<Integer> increasePriceOfActive(Double percentage) {
+        return productRepository.increasePriceOfActive(percentage)
+                .doOnSuccess(updated -> productVersionIndex.invalidateAll());
+    }
+
+    /**
+     * Sube el precio de los productos activos con un UPDATE en base de datos y devuelve el número de filas actualizadas
+     */
+    public Mono<Integer> increasePriceOfActiveProductsCount(Double percentage) {
+        return increasePriceOfActive(percentage);
+    }
+
+    /**
+     * Igual que increasePriceOfActiveProductsCount pero con un UPDATE por cada rango de chunkSize ids,
+     * cada sentencia bloquea menos filas y durante menos tiempo
+     */
+    public Mono<Integer> increasePriceOfActiveProductsChunked(Double percentage, long chunkSize) {
+        if (chunkSize < 1)
+            return Mono.error(new IllegalArgumentException("chunkSize debe ser mayor que 0"));
+        // rangos en long: con ids grandes y chunkSize pequeño el número de rangos no cabe en un int
+        return productRepository.findMaxId()
+                .flatMapMany(maxId -> Flux.<Long, Long>generate(() -> 0L, (fromId, sink) -> {
+                    sink.next(fromId);
+                    // último rango: el que contiene maxId
+                    if (fromId > maxId - chunkSize)
+                        sink.complete();
+                    return fromId + chunkSize;
+                }))
+                .concatMap(fromId -> productRepository.increasePriceOfActiveInRange(percentage, fromId, toId(fromId, chunkSize))
+                        .doOnSuccess(updated -> productVersionIndex.invalidateAll()))
+                .reduce(0, Integer::sum);
+    }
+
+    // fin del rango (excluido), sin pasar de Long.MAX_VALUE
+    private static long toId(long fromId, long chunkSize) {
+        return fromId > Long.MAX_VALUE - chunkSize ? Long.MAX_VALUE : fromId + chunkSize;
     }
 
     public Mono<Product> reduceQuantity(Long id, Integer amount) {
-        return productRepository.findById(id)
-                .flatMap(product -> {
-                    if (product.getQuantity() >= amount) {
-                        product.setQuantity(product.getQuantity() - amount);
-                        return productRepository.save(product);
-                    } else {
-                        log.warn("No se puede decrementar cantidad de producto {}", id);
-                        return Mono.error(new IllegalArgumentException("Cantidad erróneo"));
-                    }
-                });
+        // Versión anterior: leer, comprobar en Java y guardar no es atómico,
+        // con peticiones concurrentes dos pedidos pueden leer la misma cantidad y vender más de lo que hay
+//        return productRepository.findById(id)
+//                .flatMap(product -> {
+//                    if (product.getQuantity() >= amount) {
+//                        product.setQuantity(product.getQuantity() - amount);
+//                        return productRepository.save(product);
+//                    } else {
+//                        log.warn("No se puede decrementar cantidad de producto {}", id);
+//                        return Mono.error(new IllegalArgumentException("Cantidad erróneo"));
+//                    }
+//                });
+
+        if (amount == null || amount < 1)
+            return Mono.error(new IllegalArgumentException("Cantidad erróneo"));
+
+        Mono<Boolean> reserved = reservationBufferEnabled
+                ? stockReservationBuffer.reserve(id, amount)
+                : productRepository.decrementQuantity(id, amount)
+                        .map(updated -> updated == 1)
+                        .doOnNext(ok -> {
+                            if (ok) productVersionIndex.invalidate(id);
+                        });
+
+        // si no se ha actualizado puede ser porque no existe (vacío, 404) o porque no hay cantidad suficiente (error)
+        return reserved.flatMap(ok -> ok
+                ? findById(id).doOnNext(lowStockIndex::record)
+                : productRepository.existsById(id).flatMap(exists -> {
+                    if (!exists) return Mono.empty();
+                    log.warn("No se puede decrementar cantidad de producto {}", id);
+                    return Mono.error(new IllegalArgumentException("Cantidad erróneo"));
+                }));
     }
 
     public Mono<Product> findByIdWithManufacturer(Long id) {
-        return null;
+        // fabricante de la base de datos local con un JOIN, sin una segunda consulta
+        return productRepository.findByIdWithManufacturer(id).map(this::withAvailableQuantity);
     }
 
     public Flux<Product> findAllWithManufacturer() {
 
         // Suponemos que manufacturer estuviera en otro microservicio y hay que traerlo con webclient
 //        // Trae un manufacturer por cada producto por tanto podría no ser eficiente si hay muchos productos
+//        return productRepository.findAll()
+//                .flatMap(
+//                        product -> manufacturerClient.get()
+//                                .uri("/manufacturers/{id}", product.getManufacturerId())
+//                                .retrieve()
+//                                .bodyToMono(Manufacturer.class)
+//                                // .map(product::manufacturer) // si tenemos @Accessors(fluent = true)
+//                                .map(manufacturer -> {
+//                                    product.setManufacturer(manufacturer);
+//                                    return product;
+//                                })
+//                                .defaultIfEmpty(product)
+//                );
+
+        // Con ManufacturerBatchLoader: los ids se agrupan en lotes y se hace una petición por lote,
+        // los productos que comparten fabricante reutilizan la misma petición.
+        // Pasa primero por EnrichmentCache: solo se piden en lote los fabricantes que no están en caché
         return productRepository.findAll()
+                .map(this::withAvailableQuantity)
                 .flatMap(
-                        product -> manufacturerClient.get()
-                                .uri("/manufacturers/{id}", product.getManufacturerId())
-                                .retrieve()
-                                .bodyToMono(Manufacturer.class)
-                                // .map(product::manufacturer) // si tenemos @Accessors(fluent = true)
+                        product -> (product.getManufacturerId() == null
+                                ? Mono.<Manufacturer>empty()
+                                : enrichmentCache.manufacturer(product.getManufacturerId(), manufacturerBatchLoader::load))
                                 .map(manufacturer -> {
                                     product.setManufacturer(manufacturer);
                                     return product;
                                 })
+                                // lote fallido: sin fabricante solo en esta respuesta, la caché no guarda el error
+                                .onErrorResume(e -> Mono.empty())
                                 .defaultIfEmpty(product)
                 );
 
@@ -169,36 +500,38 @@ public class ProductService {
         // Product tendría OneToMany con Rating
         // Manufacturer y Rating estarían en otros microservicios
 
-        AtomicReference<Object> resource = new AtomicReference<>(new Object());
-        return productRepository.findAll()
-                .flatMap(product -> {
-                    // get manufacturer
-                    Mono<Manufacturer> manufacturerMono = manufacturerClient.get()
-                            .uri("manufactures/{id}", product.getManufacturerId())
-                            .retrieve()
-                            .bodyToMono(Manufacturer.class)
-                            .onErrorResume(e -> Mono.empty());
-
-                    // get ratings
-                    Flux<RatingDTO> ratingDTOFlux = ratingClient.get()
-                            .uri("ratings?productId={id}", product.getId())
-                            .retrieve()
-                            .bodyToFlux(RatingDTO.class)
-                            .onErrorResume(e -> Flux.empty());
-
-                    // zip
-
-                    return Mono.zip(manufacturerMono, ratingDTOFlux.collectList())
-                            .map(tuple -> {
-                                product.setManufacturer(tuple.getT1());
-                                product.setRatings(tuple.getT2());
-                                return product;
-                            }).defaultIfEmpty(product)
-                            .doFinally(signalType ->  {
-                                resource.set(null);
-                            });
+        // Versión anterior: flatMap sin límite, con muchos productos abre miles de conexiones a la vez
+        // y un microservicio lento bloquea todo el Flux porque no hay timeout
+//        return productRepository.findAll()
+//                .flatMap(product -> {
+//                    Mono<Manufacturer> manufacturerMono = manufacturerClient.get()
+//                            .uri("manufactures/{id}", product.getManufacturerId())
+//                            .retrieve()
+//                            .bodyToMono(Manufacturer.class)
+//                            .onErrorResume(e -> Mono.empty());
+//                    Flux<RatingDTO> ratingDTOFlux = ratingClient.get()
+//                            .uri("ratings?productId={id}", product.getId())
+//                            .retrieve()
+//                            .bodyToFlux(RatingDTO.class)
+//                            .onErrorResume(e -> Flux.empty());
+//                    return Mono.zip(manufacturerMono, ratingDTOFlux.collectList())
+//                            .map(tuple -> {
+//                                product.setManufacturer(tuple.getT1());
+//                                product.setRatings(tuple.getT2());
+//                                return product;
+//                            }).defaultIfEmpty(product);
+//                });
 
-                });
+        // Cada microservicio tiene su propio flatMap con su límite de concurrencia
+        // y toda la petición comparte un plazo (deadline): lo que no llegue a tiempo se marca en product.missing
+        // Las llamadas pasan por EnrichmentCache, solo se llama al microservicio si no está en caché
+        return Flux.defer(() -> {
+            long deadline = System.nanoTime() + enrichmentDeadline.toNanos();
+            return productRepository.findAll()
+                    .map(this::withAvailableQuantity)
+                    .flatMap(product -> enrichWithManufacturer(product, deadline), manufacturerConcurrency)
+                    .flatMap(product -> enrichWithRatings(product, deadline), ratingConcurrency);
+        });
 
         // alternativa a collectList:
         // collectMap, collectMultimap, reduce, reduceWith, collect()
@@ -207,6 +540,71 @@ public class ProductService {
 
     }
 
+    private Mono<Product> enrichWithManufacturer(Product product, long deadline) {
+        if (product.getManufacturerId() == null)
+            return Mono.just(product);
+
+        return callUpstream("manufacturer", deadline, product, enrichmentCache.manufacturer(product.getManufacturerId()))
+                .map(manufacturer -> {
+                    product.setManufacturer(manufacturer);
+                    return product;
+                })
+                .defaultIfEmpty(product);
+    }
+
+    private Mono<Product> enrichWithRatings(Product product, long deadline) {
+        return callUpstream("ratings", deadline, product, enrichmentCache.ratings(product.getId()))
+                .map(ratings -> {
+                    product.setRatings(ratings);
+                    return product;
+                })
+                .defaultIfEmpty(product);
+    }
+
+    /**
+     * Llama a un microservicio con el tiempo que le quede a la petición.
+     * Si no queda tiempo, falla (también si UpstreamGuard la rechaza por circuit breaker abierto o bulkhead lleno)
+     * o tarda demasiado marca el dato como missing en el producto y devuelve vacío.
+     * Registra la latencia en el timer products.upstream.latency etiquetado por microservicio y resultado.
+     */
+    private <T> Mono<T> callUpstream(String upstream, long deadline, Product product, Mono<T> call) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            long remaining = deadline - start;
+            if (remaining <= 0) {
+                product.markMissing(upstream);
+                recordUpstreamLatency(upstream, "skipped", 0);
+                return Mono.empty();
+            }
+            return call
+                    .timeout(Duration.ofNanos(remaining))
+                    .doOnSuccess(value -> recordUpstreamLatency(upstream, "success", System.nanoTime() - start))
+                    .onErrorResume(e -> {
+                        recordUpstreamLatency(upstream, outcome(e), System.nanoTime() - start);
+                        log.debug("{} no disponible para producto {}: {}", upstream, product.getId(), e.toString());
+                        product.markMissing(upstream);
+                        return Mono.empty();
+                    });
+        });
+    }
+
+    private static String outcome(Throwable e) {
+        if (e instanceof TimeoutException) return "timeout";
+        // circuit breaker abierto o bulkhead lleno: no se ha llegado a llamar
+        if (e instanceof UpstreamRejectedException) return "rejected";
+        return "error";
+    }
+
+    private void recordUpstreamLatency(String upstream, String outcome, long nanos) {
+        Timer.builder("products.upstream.latency")
+                .description("Latencia de las llamadas a microservicios para enriquecer productos")
+                .tag("upstream", upstream)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
 //    public Flux<Product> findAllWithManufacturerAndRatingsOneQuery() {
 //        return productRepository.findAll()
 //                .collectMultimap(Product::getManufacturerId)
@@ -251,8 +649,11 @@ public class ProductService {
 //                });
 //    }
 
+    /**
+     * Producto del servicio remoto de productos, normalmente desde la réplica local (RemoteProductReplica)
+     */
     public Mono<Product> findRemoteById(Long id) {
-        return null;
+        return remoteProductReplica.findById(id);
     }
 
 
@@ -260,5 +661,10 @@ public class ProductService {
         return productRepository.count();
     }
 
+    // total aproximado: puede estar desfasado hasta 10 segundos
+    public Mono<Long> countCached() {
+        return cachedCount;
+    }
+
     // Probar a liberar resource de collectList desde un test: doFinally (no permite cambiar la lista a null clear)
 }
@@ -0,0 +1,123 @@
+package com.certidevs.service;
+
+import com.certidevs.entity.Product;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Índice en memoria de la versión actual de cada producto para GET condicionales (ETag / Last-Modified)
+ *
+ * Con el índice, un GET con If-None-Match o If-Modified-Since de un producto que no ha cambiado
+ * se responde con 304 sin consultar la base de datos.
+ *
+ * * Se rellena al leer y escribir productos desde ProductService
+ * * Las escrituras que no devuelven el producto (UPDATE en bloque, StockReservationBuffer) invalidan las entradas
+ * * Nunca se sustituye una versión por otra más antigua, y una lectura que empezó antes de invalidar su producto
+ *   no se guarda: así el índice no puede quedarse con una versión obsoleta. Cada invalidación avanza un reloj
+ *   y deja una marca por id (tombstone) con ese instante, invalidar un producto no descarta las lecturas de los demás
+ * * Tamaño limitado a max-size (Caffeine, expulsa las menos usadas) para las versiones y para las marcas. Si se expulsa una marca,
+ *   se descartan las lecturas que empezaron antes de ella (minEpoch), de cualquier producto
+ */
+@Component
+public class ProductVersionIndex {
+
+    /**
+     * ETag (id y versión de la fila) y fecha de última modificación
+     */
+    public record Validators(long version, String etag, Instant lastModified) {
+    }
+
+    private final AtomicLong epoch = new AtomicLong();
+    // lecturas que empezaron antes no se guardan: invalidateAll o marcas expulsadas
+    private final AtomicLong minEpoch = new AtomicLong();
+    private final Cache<Long, Validators> validators;
+    // id -> epoch de su última invalidación
+    private final Cache<Long, Long> invalidated;
+
+    public ProductVersionIndex(@Value("${products.version-index.max-size:100000}") int maxSize) {
+        this.validators = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .build();
+        this.invalidated = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                // se ejecuta al expulsar, antes de que la marca deje de verse
+                .<Long, Long>evictionListener((id, invalidatedAt, cause) -> {
+                    if (invalidatedAt != null)
+                        minEpoch.accumulateAndGet(invalidatedAt, Math::max);
+                })
+                .build();
+    }
+
+    public static Validators validators(Product product) {
+        return validators(product, 0);
+    }
+
+    /**
+     * Validadores con stock reservado en memoria (StockReservationBuffer): la cantidad cambia sin cambiar la versión
+     * de la fila, el ETag incluye lo reservado y ya no coincide con el de la cantidad anterior.
+     * Sin Last-Modified, la fecha de la fila no cambia con cada reserva
+     */
+    public static Validators validators(Product product, int reserved) {
+        long version = product.getVersion() == null ? 0 : product.getVersion();
+        LocalDateTime modified = product.getLastModified() != null ? product.getLastModified() : product.getCreationDate();
+        String tag = product.getId() + "-" + version + (reserved > 0 ? "-r" + reserved : "");
+        return new Validators(
+                version,
+                "\"" + tag + "\"",
+                modified == null || reserved > 0 ? null : modified.atZone(ZoneId.systemDefault()).toInstant());
+    }
+
+    /**
+     * Validadores conocidos del producto o null si no está en el índice
+     */
+    public Validators get(Long id) {
+        return validators.getIfPresent(id);
+    }
+
+    /**
+     * Instante del reloj de invalidaciones a capturar antes de leer de base de datos y pasar a record
+     */
+    public long epoch() {
+        return epoch.get();
+    }
+
+    /**
+     * Guarda la versión del producto leído o escrito si el producto no se ha invalidado desde readEpoch
+     */
+    public Validators record(Product product, long readEpoch) {
+        var current = validators(product);
+        if (product.getId() == null || product.getVersion() == null)
+            return current;
+        // dentro de compute: invalidate deja la marca antes de quitar la entrada, o la ve aquí o quita lo guardado
+        validators.asMap().compute(product.getId(), (id, old) -> {
+            if (stale(id, readEpoch))
+                return old;
+            return old == null || current.version() >= old.version() ? current : old;
+        });
+        return current;
+    }
+
+    private boolean stale(Long id, long readEpoch) {
+        if (readEpoch < minEpoch.get())
+            return true;
+        Long invalidatedAt = invalidated.getIfPresent(id);
+        return invalidatedAt != null && invalidatedAt > readEpoch;
+    }
+
+    public void invalidate(Long id) {
+        invalidated.put(id, epoch.incrementAndGet());
+        validators.invalidate(id);
+    }
+
+    public void invalidateAll() {
+        minEpoch.accumulateAndGet(epoch.incrementAndGet(), Math::max);
+        validators.invalidateAll();
+    }
+}
@@ -0,0 +1,312 @@
+package com.certidevs.service;
+
+import com.certidevs.entity.Product;
+import com.certidevs.repository.ProductRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Escritura diferida (write-behind) de altas y modificaciones de productos para ráfagas de escrituras
+ *
+ * En lugar de un INSERT/UPDATE por petición las escrituras se encolan en memoria y se escriben por lotes:
+ *
+ * * Altas: INSERT multi-fila (insertBatch), los ids se leen después por título (único).
+ *   Si el lote falla se reintenta fila a fila para que solo fallen las filas con error
+ * * Modificaciones: un único UPDATE con CASE por lote (updateBatch). Varias modificaciones del mismo id
+ *   antes del flush se unen en una (gana la última)
+ * * Se escribe cuando hay batch-size escrituras pendientes o cada flush-interval
+ * * Cola limitada a max-pending: con la cola llena ProductService escribe directamente (SYNC), salvo las
+ *   modificaciones de un id con otra pendiente o en un flush en curso (isPending): esas siempre pasan por la cola,
+ *   si no la escritura encolada antes sobrescribiría después a la directa
+ * * FLUSHED espera como mucho flush-timeout a que se escriba el lote
+ * * Métricas products.write-behind.pending (escrituras en cola), products.write-behind.flush (latencia por lote
+ *   y operación) y products.write-behind.failed (escrituras MEMORY que han fallado tras confirmarse)
+ *
+ * Las lecturas no ven las escrituras pendientes hasta el flush.
+ */
+@Slf4j
+@Component
+public class ProductWriteBehind {
+
+    private final ProductRepository productRepository;
+    private final ProductVersionIndex productVersionIndex;
+    private final LowStockIndex lowStockIndex;
+    private final TitleSearchIndex titleSearchIndex;
+    private final StockReservationBuffer stockReservationBuffer;
+    private final int batchSize;
+    private final int maxPending;
+    private final Duration flushTimeout;
+
+    private final Queue<PendingInsert> inserts = new ConcurrentLinkedQueue<>();
+    private final Map<Long, PendingUpdate> updates = new ConcurrentHashMap<>();
+    // modificaciones sacadas de updates por un flush que aún no se han escrito
+    private final Map<Long, PendingUpdate> flushingUpdates = new ConcurrentHashMap<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final Sinks.Many<Long> flushRequests = Sinks.many().multicast().directBestEffort();
+    private final Disposable flushing;
+
+    private final Timer insertFlush;
+    private final Timer updateFlush;
+    private final Counter failed;
+
+    private record PendingInsert(Product product, Sinks.One<Product> done) {
+    }
+
+    // se modifica solo dentro de updates.compute, el flush la saca del mapa antes de leerla
+    private static class PendingUpdate {
+        final Long id;
+        Double price;
+        Integer quantity;
+        final List<Sinks.One<Product>> waiting = new ArrayList<>(1);
+
+        PendingUpdate(Long id) {
+            this.id = id;
+        }
+    }
+
+    public ProductWriteBehind(
+            ProductRepository productRepository,
+            ProductVersionIndex productVersionIndex,
+            LowStockIndex lowStockIndex,
+            TitleSearchIndex titleSearchIndex,
+            StockReservationBuffer stockReservationBuffer,
+            MeterRegistry meterRegistry,
+            @Value("${products.write-behind.batch-size:200}") int batchSize,
+            @Value("${products.write-behind.max-pending:10000}") int maxPending,
+            @Value("${products.write-behind.flush-interval:50ms}") Duration flushInterval,
+            @Value("${products.write-behind.flush-timeout:10s}") Duration flushTimeout) {
+        this.productRepository = productRepository;
+        this.productVersionIndex = productVersionIndex;
+        this.lowStockIndex = lowStockIndex;
+        this.titleSearchIndex = titleSearchIndex;
+        this.stockReservationBuffer = stockReservationBuffer;
+        this.batchSize = batchSize;
+        this.maxPending = maxPending;
+        this.flushTimeout = flushTimeout;
+
+        Gauge.builder("products.write-behind.pending", pending, AtomicInteger::get)
+                .description("Escrituras de productos pendientes de flush")
+                .register(meterRegistry);
+        this.insertFlush = flushTimer(meterRegistry, "insert");
+        this.updateFlush = flushTimer(meterRegistry, "update");
+        this.failed = Counter.builder("products.write-behind.failed")
+                .description("Escrituras confirmadas en memoria que no se han podido guardar")
+                .register(meterRegistry);
+
+        // por tiempo o al llegar a batch-size; los avisos que llegan durante un flush se descartan,
+        // ese flush o el siguiente ya recoge sus escrituras. Un error en un flush no detiene los siguientes
+        this.flushing = Flux.merge(Flux.interval(flushInterval), flushRequests.asFlux())
+                .onBackpressureDrop()
+                .concatMap(tick -> flush().onErrorResume(e -> {
+                    log.warn("Error en el flush de escrituras de productos", e);
+                    return Mono.empty();
+                }), 1)
+                .subscribe();
+    }
+
+    public boolean isFull() {
+        return pending.get() >= maxPending;
+    }
+
+    /**
+     * Si el producto tiene una modificación encolada o en un flush en curso
+     */
+    public boolean isPending(Long id) {
+        return updates.containsKey(id) || flushingUpdates.containsKey(id);
+    }
+
+    /**
+     * Encola el alta del producto. Con MEMORY devuelve el producto sin id al encolarlo,
+     * con FLUSHED el producto guardado con su id tras el flush
+     */
+    public Mono<Product> insert(Product product, WriteDurability durability) {
+        return Mono.defer(() -> {
+            // alta siempre, también en el reintento fila a fila con save(): sin id ni version del cuerpo
+            product.setId(null);
+            product.setVersion(null);
+            var done = durability == WriteDurability.MEMORY ? null : Sinks.<Product>one();
+            inserts.add(new PendingInsert(product, done));
+            added();
+            return done == null ? Mono.just(product) : done.asMono().timeout(flushTimeout);
+        });
+    }
+
+    /**
+     * Encola la modificación de precio y cantidad del producto id. Con FLUSHED devuelve el producto
+     * tras el flush o vacío si no existe, con MEMORY devuelve lo recibido sin comprobar que exista
+     */
+    public Mono<Product> update(Long id, Product product, WriteDurability durability) {
+        return Mono.defer(() -> {
+            var done = durability == WriteDurability.MEMORY ? null : Sinks.<Product>one();
+            updates.compute(id, (key, update) -> {
+                if (update == null) {
+                    update = new PendingUpdate(key);
+                    added();
+                }
+                update.price = product.getPrice();
+                update.quantity = product.getQuantity();
+                if (done != null)
+                    update.waiting.add(done);
+                return update;
+            });
+            if (done != null)
+                return done.asMono().timeout(flushTimeout);
+            product.setId(id);
+            return Mono.just(product);
+        });
+    }
+
+    private void added() {
+        if (pending.incrementAndGet() >= batchSize)
+            flushRequests.tryEmitNext(System.nanoTime());
+    }
+
+    /**
+     * Escribe todo lo pendiente en lotes de batch-size: primero las altas y luego las modificaciones
+     */
+    public Mono<Void> flush() {
+        return Mono.defer(() -> {
+            List<PendingInsert> insertBatch = new ArrayList<>();
+            for (PendingInsert insert; (insert = inserts.poll()) != null; )
+                insertBatch.add(insert);
+            List<PendingUpdate> updateBatch = new ArrayList<>();
+            // pasa a flushingUpdates antes de salir de updates: isPending no deja de verla hasta que se escribe
+            for (Long id : updates.keySet())
+                updates.computeIfPresent(id, (key, update) -> {
+                    flushingUpdates.put(key, update);
+                    updateBatch.add(update);
+                    return null;
+                });
+            pending.addAndGet(-(insertBatch.size() + updateBatch.size()));
+            if (insertBatch.isEmpty() && updateBatch.isEmpty())
+                return Mono.empty();
+
+            return Flux.fromIterable(insertBatch)
+                    .buffer(batchSize)
+                    .concatMap(this::flushInserts)
+                    .then(insertBatch.isEmpty() ? Mono.empty() : loadNewIntoIndexes())
+                    .thenMany(Flux.fromIterable(updateBatch).buffer(batchSize).concatMap(this::flushUpdates))
+                    .then()
+                    .doFinally(signal -> updateBatch.forEach(update -> flushingUpdates.remove(update.id, update)));
+        });
+    }
+
+    // las altas ya están guardadas y confirmadas: si falla la carga en los índices se registra y siguen las modificaciones
+    private Mono<Void> loadNewIntoIndexes() {
+        return lowStockIndex.loadNew()
+                .then(titleSearchIndex.loadNew())
+                .then()
+                .onErrorResume(e -> {
+                    log.warn("Error cargando en los índices los productos nuevos", e);
+                    return Mono.empty();
+                });
+    }
+
+    private Mono<Void> flushInserts(List<PendingInsert> batch) {
+        long start = System.nanoTime();
+        List<Product> products = batch.stream().map(PendingInsert::product).toList();
+        products.forEach(p -> {
+            p.setActive(true);
+            p.setCreationDate(LocalDateTime.now());
+            p.setLastModified(p.getCreationDate());
+        });
+        return productRepository.insertBatch(products)
+                .flatMap(inserted -> productRepository.findByTitleIn(products.stream().map(Product::getTitle).toList())
+                        .collectMap(Product::getTitle))
+                .doOnNext(saved -> batch.forEach(insert -> complete(insert.done(), saved.get(insert.product().getTitle()))))
+                .then()
+                // el lote completo ha fallado (ej: un título duplicado): fila a fila para que solo fallen las que dan error
+                .onErrorResume(e -> Flux.fromIterable(batch)
+                        .concatMap(insert -> productRepository.save(insert.product())
+                                .doOnNext(saved -> complete(insert.done(), saved))
+                                .onErrorResume(rowError -> {
+                                    fail(insert.done(), rowError);
+                                    return Mono.empty();
+                                }))
+                        .then())
+                .doFinally(signal -> insertFlush.record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+    }
+
+    private Mono<Void> flushUpdates(List<PendingUpdate> batch) {
+        long start = System.nanoTime();
+        List<Product> products = batch.stream()
+                .map(update -> Product.builder().id(update.id).price(update.price).quantity(update.quantity).build())
+                .toList();
+        List<Long> ids = products.stream().map(Product::getId).toList();
+        // como en ProductService.update, el stock reservado en memoria se devuelve antes de fijar la cantidad
+        return Flux.fromIterable(ids)
+                .concatMap(stockReservationBuffer::release)
+                .then(productRepository.updateBatch(products))
+                .doOnNext(updated -> ids.forEach(productVersionIndex::invalidate))
+                // se vuelven a leer para el índice de stock y para quien espera el producto guardado
+                .thenMany(productRepository.findAllById(ids))
+                .doOnNext(lowStockIndex::record)
+                .collectMap(Product::getId)
+                .doOnNext(saved -> batch.forEach(update ->
+                        update.waiting.forEach(done -> complete(done, saved.get(update.id)))))
+                .then()
+                .onErrorResume(e -> {
+                    log.warn("Error guardando lote de {} modificaciones de productos", batch.size(), e);
+                    batch.forEach(update -> {
+                        if (update.waiting.isEmpty())
+                            failed.increment();
+                        update.waiting.forEach(done -> done.tryEmitError(e));
+                    });
+                    return Mono.empty();
+                })
+                .doFinally(signal -> updateFlush.record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+    }
+
+    private static void complete(Sinks.One<Product> done, Product saved) {
+        if (done == null)
+            return;
+        if (saved != null)
+            done.tryEmitValue(saved);
+        else
+            done.tryEmitEmpty();
+    }
+
+    private void fail(Sinks.One<Product> done, Throwable e) {
+        if (done != null) {
+            done.tryEmitError(e);
+        } else {
+            failed.increment();
+            log.warn("Error guardando producto confirmado en memoria", e);
+        }
+    }
+
+    private static Timer flushTimer(MeterRegistry meterRegistry, String operation) {
+        return Timer.builder("products.write-behind.flush")
+                .description("Latencia de escritura de cada lote de productos")
+                .tag("operation", operation)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void close() {
+        flushing.dispose();
+        flush().block(Duration.ofSeconds(5));
+    }
+}
@@ -0,0 +1,202 @@
+package com.certidevs.service;
+
+import com.certidevs.dto.ProductInvalidation;
+import com.certidevs.entity.Product;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Réplica local de lectura (near-cache read-through) de los productos del servicio remoto de productos
+ *
+ * * findById: desde memoria si está, si no GET /products/{id} al servicio remoto y se guarda.
+ *   Varias peticiones a la vez del mismo id comparten la misma llamada
+ * * Se guarda el JSON serializado (byte[]), no la entidad: cada lectura crea su propio Product,
+ *   el tamaño en memoria se conoce exactamente (max-size en bytes) y los valores se podrían mover fuera del heap
+ * * Carga inicial al arrancar desde el volcado en streaming GET /products/dump (NDJSON) con warm-up.enabled
+ * * Invalidaciones desde el stream SSE GET /products/events con events.enabled: tras una reconexión
+ *   se vacía la réplica entera porque se han podido perder eventos
+ * * ttl como red de seguridad si se pierde algún evento
+ * * Métricas cache.gets, cache.puts, cache.evictions... con cache=remote-products
+ */
+@Slf4j
+@Component
+public class RemoteProductReplica {
+
+    private final WebClient productClient;
+    private final ObjectMapper objectMapper;
+    private final boolean warmUpEnabled;
+    private final boolean eventsEnabled;
+    private final AsyncCache<Long, byte[]> products;
+
+    // ids invalidados mientras se carga el volcado: sus filas del volcado pueden estar desfasadas
+    private final Set<Long> invalidatedDuringWarmUp = ConcurrentHashMap.newKeySet();
+    private volatile boolean warmingUp;
+    // aumenta con cada invalidación completa, la carga del volcado se detiene si cambia
+    private final AtomicLong generation = new AtomicLong();
+    private volatile Disposable events;
+
+    public RemoteProductReplica(
+            WebClient productClient,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${products.remote.max-size:64MB}") DataSize maxSize,
+            @Value("${products.remote.ttl:10m}") Duration ttl,
+            @Value("${products.remote.warm-up.enabled:false}") boolean warmUpEnabled,
+            @Value("${products.remote.events.enabled:false}") boolean eventsEnabled) {
+        this.productClient = productClient;
+        this.objectMapper = objectMapper;
+        this.warmUpEnabled = warmUpEnabled;
+        this.eventsEnabled = eventsEnabled;
+        this.products = Caffeine.newBuilder()
+                .maximumWeight(maxSize.toBytes())
+                .weigher((Long id, byte[] json) -> json.length)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, products, "remote-products");
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        // primero los eventos para no perder las invalidaciones que lleguen durante la carga
+        if (eventsEnabled)
+            events = subscribeToEvents();
+        if (warmUpEnabled)
+            warmUp().subscribe(
+                    count -> log.info("Réplica de productos remotos cargada con {} productos", count),
+                    e -> log.warn("No se ha podido cargar la réplica de productos remotos", e));
+    }
+
+    /**
+     * Producto remoto por id, vacío si el servicio remoto responde 404
+     */
+    public Mono<Product> findById(Long id) {
+        // suppressCancel: si quien espera cancela no se cancela la carga compartida
+        return Mono.fromFuture(() -> products.get(id, (key, executor) -> fetch(key).toFuture()), true)
+                .map(this::deserialize);
+    }
+
+    /**
+     * Carga el volcado completo de productos remotos, devuelve cuántos se han guardado
+     */
+    public Mono<Long> warmUp() {
+        return Mono.defer(() -> {
+            warmingUp = true;
+            invalidatedDuringWarmUp.clear();
+            long startGeneration = generation.get();
+            return productClient.get()
+                    .uri("/products/dump")
+                    .accept(MediaType.APPLICATION_NDJSON)
+                    .retrieve()
+                    // un JsonNode por línea según llegan, sin leer el volcado completo en memoria
+                    .bodyToFlux(JsonNode.class)
+                    .takeWhile(node -> generation.get() == startGeneration)
+                    .filter(node -> node.hasNonNull("id") && !invalidatedDuringWarmUp.contains(node.get("id").asLong()))
+                    .doOnNext(node -> products.synchronous().put(node.get("id").asLong(), serialize(node)))
+                    .count()
+                    .doFinally(signal -> {
+                        warmingUp = false;
+                        invalidatedDuringWarmUp.clear();
+                    });
+        });
+    }
+
+    public void apply(ProductInvalidation event) {
+        if (event.id() == null) {
+            invalidateAll();
+            return;
+        }
+        if (warmingUp)
+            invalidatedDuringWarmUp.add(event.id());
+        products.synchronous().invalidate(event.id());
+    }
+
+    public void invalidateAll() {
+        // durante la carga no se sabe qué filas del volcado ya estaban desfasadas: se deja de cargar
+        generation.incrementAndGet();
+        if (warmingUp)
+            log.warn("Invalidación completa durante la carga de la réplica de productos remotos");
+        products.synchronous().invalidateAll();
+    }
+
+    public long size() {
+        return products.synchronous().estimatedSize();
+    }
+
+    private Mono<byte[]> fetch(Long id) {
+        return productClient.get()
+                .uri("/products/{id}", id)
+                .retrieve()
+                // se guarda la respuesta tal cual, sin deserializar y volver a serializar
+                .bodyToMono(byte[].class)
+                .onErrorResume(WebClientResponseException.NotFound.class, e -> Mono.empty());
+    }
+
+    private Disposable subscribeToEvents() {
+        var connections = new AtomicInteger();
+        return productClient.get()
+                .uri("/products/events")
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .retrieve()
+                .bodyToFlux(ProductInvalidation.class)
+                .doOnSubscribe(subscription -> {
+                    // reconexión: los eventos enviados mientras no había conexión se han perdido
+                    if (connections.getAndIncrement() > 0)
+                        invalidateAll();
+                })
+                .doOnNext(this::apply)
+                // el servidor cierra el stream o falla: se vuelve a conectar
+                .repeat()
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1)).maxBackoff(Duration.ofSeconds(30))
+                        .doBeforeRetry(signal -> log.warn("Stream de invalidaciones de productos caído, reconectando: {}",
+                                signal.failure().toString())))
+                .subscribe();
+    }
+
+    private Product deserialize(byte[] json) {
+        try {
+            return objectMapper.readValue(json, Product.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private byte[] serialize(JsonNode node) {
+        try {
+            return objectMapper.writeValueAsBytes(node);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        if (events != null)
+            events.dispose();
+    }
+}
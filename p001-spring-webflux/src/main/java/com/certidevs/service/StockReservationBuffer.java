@@ -0,0 +1,160 @@
+package com.certidevs.service;
+
+import com.certidevs.repository.ProductRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Buffer de reservas de stock para productos muy demandados
+ *
+ * En lugar de un UPDATE por cada pedido, se reserva en base de datos un lote de stock (lease)
+ * con el decremento atómico y los siguientes pedidos se sirven desde memoria:
+ *
+ * * Cada producto tiene su propio contador (AtomicInteger), productos distintos no compiten entre sí
+ * * Nunca se vende más de lo que hay: el stock en memoria ya se ha descontado antes en base de datos
+ * * El stock reservado que no se usa se devuelve a base de datos pasado leaseTtl sin uso y el lease se elimina
+ * * Solo hay lease de productos con una reserva en base de datos correcta, un id que no existe no ocupa memoria
+ *
+ * Mientras hay un lease activo la cantidad en base de datos es menor que el stock disponible real:
+ * available(id) devuelve lo que queda reservado en memoria (ProductService lo suma en las lecturas)
+ * y antes de fijar la cantidad de un producto hay que devolver su lease con release(id).
+ */
+@Slf4j
+@Component
+public class StockReservationBuffer {
+
+    private final ProductRepository productRepository;
+    private final ProductVersionIndex productVersionIndex;
+    private final int leaseSize;
+    private final Duration leaseTtl;
+
+    private final Map<Long, Lease> leases = new ConcurrentHashMap<>();
+    private final Disposable flushing;
+
+    private static class Lease {
+        final AtomicInteger remaining = new AtomicInteger();
+        volatile long lastUse = System.nanoTime();
+    }
+
+    public StockReservationBuffer(
+            ProductRepository productRepository,
+            ProductVersionIndex productVersionIndex,
+            @Value("${products.stock.lease-size:10}") int leaseSize,
+            @Value("${products.stock.lease-ttl:1s}") Duration leaseTtl) {
+        this.productRepository = productRepository;
+        this.productVersionIndex = productVersionIndex;
+        this.leaseSize = leaseSize;
+        this.leaseTtl = leaseTtl;
+        this.flushing = Flux.interval(leaseTtl)
+                .concatMap(tick -> flush(false))
+                .subscribe();
+    }
+
+    /**
+     * Reserva amount unidades del producto: true si se ha podido, false si no hay stock o no existe
+     */
+    public Mono<Boolean> reserve(Long id, int amount) {
+        return Mono.defer(() -> {
+            var lease = leases.get(id);
+            if (lease != null) {
+                lease.lastUse = System.nanoTime();
+                if (take(lease, amount))
+                    return Mono.just(true);
+            }
+
+            // no queda stock reservado en memoria: se reserva en base de datos lo pedido más un lote para los siguientes
+            return productRepository.decrementQuantity(id, amount + leaseSize)
+                    .flatMap(updated -> {
+                        if (updated == 1) {
+                            // se suma al lease que esté en el mapa en ese momento, no a uno que flush ya ha quitado
+                            leases.compute(id, (key, current) -> {
+                                var leased = current == null ? new Lease() : current;
+                                leased.remaining.addAndGet(leaseSize);
+                                leased.lastUse = System.nanoTime();
+                                return leased;
+                            });
+                            return Mono.just(true);
+                        }
+                        // no hay para un lote completo, se intenta solo lo pedido
+                        return productRepository.decrementQuantity(id, amount).map(n -> n == 1);
+                    })
+                    .doOnNext(ok -> {
+                        // la fila ha cambiado de versión en base de datos
+                        if (ok) productVersionIndex.invalidate(id);
+                    });
+        });
+    }
+
+    public int available(Long id) {
+        var lease = leases.get(id);
+        return lease == null ? 0 : lease.remaining.get();
+    }
+
+    // leases en memoria, para los tests
+    int leaseCount() {
+        return leases.size();
+    }
+
+    /**
+     * Devuelve a base de datos el stock reservado sin usar: todo si all es true, si no solo el de leases sin uso reciente.
+     * Los leases devueltos se eliminan del mapa
+     */
+    public Mono<Void> flush(boolean all) {
+        long now = System.nanoTime();
+        return Flux.fromIterable(leases.entrySet())
+                .filter(entry -> all || now - entry.getValue().lastUse > leaseTtl.toNanos())
+                .concatMap(entry -> giveBack(entry.getKey(), entry.getValue()))
+                .onErrorResume(e -> {
+                    log.warn("Error devolviendo stock reservado", e);
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    /**
+     * Devuelve a base de datos el stock reservado del producto id, antes de escribir su cantidad
+     */
+    public Mono<Void> release(Long id) {
+        return Mono.defer(() -> {
+            var lease = leases.get(id);
+            return lease == null ? Mono.empty() : giveBack(id, lease);
+        });
+    }
+
+    // se quita del mapa antes de vaciarlo: una reserva posterior crea otro lease y no suma a este
+    private Mono<Void> giveBack(Long id, Lease lease) {
+        if (!leases.remove(id, lease))
+            return Mono.empty();
+        int leftover = lease.remaining.getAndSet(0);
+        if (leftover == 0)
+            return Mono.empty();
+        return productRepository.incrementQuantity(id, leftover)
+                .doOnSuccess(updated -> productVersionIndex.invalidate(id))
+                .then();
+    }
+
+    private static boolean take(Lease lease, int amount) {
+        int current;
+        do {
+            current = lease.remaining.get();
+            if (current < amount) return false;
+        } while (!lease.remaining.compareAndSet(current, current - amount));
+        return true;
+    }
+
+    @PreDestroy
+    public void close() {
+        flushing.dispose();
+        flush(true).block(Duration.ofSeconds(5));
+    }
+}
@@ -0,0 +1,320 @@
+package com.certidevs.service;
+
+import com.certidevs.dto.ProductSearchHit;
+import com.certidevs.entity.Product;
+import com.certidevs.repository.ProductRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.regex.Pattern;
+
+/**
+ * Índice invertido en memoria sobre los títulos de producto para búsqueda por palabra, prefijo (autocompletar) y
+ * con errores tipográficos, sin recorrer el catálogo
+ *
+ * ProductService lo actualiza en save, update, deleteById y bulkCreate, igual que LowStockIndex.
+ *
+ * * Los títulos se separan en palabras en minúsculas y sin tildes
+ * * Las palabras están ordenadas (skip list): las que empiezan por un prefijo son un rango del mapa, como en un trie
+ * * Cada término de la consulta debe coincidir con alguna palabra del título (AND). Puntuación por término:
+ *   palabra exacta 3, prefijo 2, a 1 edición (2 si el término tiene 8 letras o más) 1. Con empate va antes la
+ *   coincidencia más cercana del término más selectivo (exacta, prefijo más corto, menos ediciones; entre palabras
+ *   iguales en eso, la primera en orden alfabético) y después el menor id
+ * * Los ids de cada palabra están ordenados: los candidatos se leen en el mismo orden del ranking
+ * * Los candidatos salen del término más selectivo, como mucho max-candidates, y el resto de términos se comprueba
+ *   contra las palabras de cada candidato. Con términos muy cortos ("p") el top-k es el de los primeros max-candidates
+ * * Con un solo término solo se leen los limit primeros candidatos, que ya son los limit mejores:
+ *   la latencia no depende del tamaño del catálogo
+ * * La búsqueda aproximada solo recorre las palabras que empiezan por la misma letra (como mucho MAX_SCANNED_WORDS)
+ *   y se usa si no hay limit coincidencias exactas o por prefijo
+ *
+ * Al arrancar se cargan todos los títulos (ProductIndexLoader). Un producto insertado directamente en base de datos
+ * aparece en la búsqueda con el siguiente loadNew(); un título cambiado con un UPDATE directo se sigue buscando por
+ * sus palabras anteriores hasta reiniciar.
+ */
+@Component
+public class TitleSearchIndex {
+
+    static final int EXACT = 3, PREFIX = 2, FUZZY = 1;
+    // términos más cortos no se buscan de forma aproximada: casi cualquier palabra estaría a una edición
+    static final int FUZZY_MIN_LENGTH = 4;
+    // palabras del índice recorridas como mucho por término (rango de un prefijo o de la primera letra)
+    static final int MAX_SCANNED_WORDS = 20_000;
+
+    private static final Pattern NON_ALPHANUMERIC = Pattern.compile("[^\\p{Alnum}]+");
+    private static final Pattern MARKS = Pattern.compile("\\p{M}");
+
+    private record Doc(String title, String[] words) {
+    }
+
+    // order: posición de la palabra por la que ha entrado el candidato, menor = coincidencia más cercana
+    private record Scored(long id, String title, int score, int order) {
+    }
+
+    private static final Comparator<Scored> WORST_FIRST = Comparator.comparingInt(Scored::score)
+            .thenComparing(Comparator.comparingInt(Scored::order).reversed())
+            .thenComparing(Comparator.comparingLong(Scored::id).reversed());
+
+    private final ProductIndexLoader loader;
+    private final int maxCandidates;
+
+    private final Map<Long, Doc> docs = new ConcurrentHashMap<>();
+    // palabra -> ids en orden ascendente. Los conjuntos vacíos no se quitan del mapa: quitarlos compite con altas concurrentes
+    // de la misma palabra y solo ocupan la palabra
+    private final ConcurrentNavigableMap<String, Set<Long>> postings = new ConcurrentSkipListMap<>();
+
+    public TitleSearchIndex(
+            ProductRepository productRepository,
+            @Value("${products.search.max-candidates:2000}") int maxCandidates) {
+        this.loader = new ProductIndexLoader(productRepository, "de búsqueda por título");
+        this.maxCandidates = maxCandidates;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        loader.loadOnStartup(this::load);
+    }
+
+    /**
+     * Indexa los títulos de los productos que aún no están en el índice.
+     * No sobrescribe títulos que ya se hayan actualizado en memoria mientras se cargaba.
+     */
+    public Mono<Long> loadNew() {
+        return loader.loadNew(this::load);
+    }
+
+    private void load(Product product) {
+        if (product.getTitle() != null)
+            docs.computeIfAbsent(product.getId(), id -> index(id, product.getTitle()));
+    }
+
+    /**
+     * Registra el título actual del producto, si ha cambiado quita las palabras del anterior
+     */
+    public void record(Product product) {
+        if (product.getId() == null)
+            return;
+        if (product.getTitle() == null) {
+            remove(product.getId());
+            return;
+        }
+        // compute es atómico por producto: dos cambios del mismo producto no mezclan sus palabras
+        docs.compute(product.getId(), (id, old) -> {
+            if (old != null && old.title().equals(product.getTitle()))
+                return old;
+            if (old != null)
+                unindex(id, old);
+            return index(id, product.getTitle());
+        });
+    }
+
+    public void remove(Long id) {
+        docs.computeIfPresent(id, (k, old) -> {
+            unindex(k, old);
+            return null;
+        });
+    }
+
+    private Doc index(Long id, String title) {
+        var doc = new Doc(title, words(title));
+        for (String word : doc.words())
+            postings.computeIfAbsent(word, w -> new ConcurrentSkipListSet<>()).add(id);
+        return doc;
+    }
+
+    private void unindex(Long id, Doc doc) {
+        for (String word : doc.words()) {
+            var ids = postings.get(word);
+            if (ids != null)
+                ids.remove(id);
+        }
+    }
+
+    /**
+     * Los limit productos que mejor coinciden con query, de mejor a peor
+     */
+    public List<ProductSearchHit> search(String query, int limit) {
+        String[] terms = query == null ? new String[0] : words(query);
+        if (terms.length == 0 || limit < 1)
+            return List.of();
+
+        String selective = terms[0];
+        int fewest = Integer.MAX_VALUE;
+        for (String term : terms) {
+            int count = countUpTo(term, Math.min(fewest, maxCandidates));
+            if (count < fewest) {
+                fewest = count;
+                selective = term;
+            }
+        }
+
+        // con un solo término los candidatos ya salen de mejor a peor: basta con leer los limit primeros
+        int wanted = terms.length == 1 ? limit : maxCandidates;
+        var top = new PriorityQueue<>(limit + 1, WORST_FIRST);
+        for (var candidate : candidates(selective, limit, wanted).entrySet()) {
+            long id = candidate.getKey();
+            Doc doc = docs.get(id);
+            if (doc == null)
+                continue;
+            int score = 0;
+            for (String term : terms) {
+                int termScore = bestScore(term, doc.words());
+                if (termScore == 0) {
+                    score = 0;
+                    break;
+                }
+                score += termScore;
+            }
+            if (score == 0)
+                continue;
+            top.add(new Scored(id, doc.title(), score, candidate.getValue()));
+            if (top.size() > limit)
+                top.poll();
+        }
+
+        var hits = new ArrayList<ProductSearchHit>(top.size());
+        while (!top.isEmpty()) {
+            var scored = top.poll();
+            hits.add(new ProductSearchHit(scored.id(), scored.title(), scored.score()));
+        }
+        return hits.reversed();
+    }
+
+    // productos con alguna palabra que empieza por term, parando al superar max
+    private int countUpTo(String term, int max) {
+        int count = 0;
+        for (var ids : withPrefix(term).values()) {
+            count += ids.size();
+            if (count >= max)
+                return count;
+        }
+        return count;
+    }
+
+    /**
+     * Hasta wanted ids -> orden de la palabra por la que han entrado: primero la palabra exacta, después los prefijos
+     * de la palabra más corta a la más larga y, si no llegan a limit, las palabras con menos ediciones.
+     * Solo se recorren palabras del índice, los productos no se leen hasta puntuarlos
+     */
+    private Map<Long, Integer> candidates(String term, int limit, int wanted) {
+        Map<Long, Integer> ids = new LinkedHashMap<>();
+        List<String> words = new ArrayList<>();
+        for (String word : withPrefix(term).keySet()) {
+            words.add(word);
+            if (words.size() >= MAX_SCANNED_WORDS)
+                break;
+        }
+        // estable: la palabra exacta es la primera del rango y la única con la longitud del término
+        words.sort(Comparator.comparingInt(String::length));
+        if (addUpTo(ids, words, wanted) || ids.size() >= limit || term.length() < FUZZY_MIN_LENGTH)
+            return ids;
+
+        int maxEdits = maxEdits(term);
+        List<String> similar = new ArrayList<>();
+        int scanned = 0;
+        for (String word : withPrefix(term.substring(0, 1)).keySet()) {
+            if (Math.abs(term.length() - word.length()) <= maxEdits && !word.startsWith(term)
+                    && editDistance(term, word, maxEdits) <= maxEdits)
+                similar.add(word);
+            if (++scanned >= MAX_SCANNED_WORDS)
+                break;
+        }
+        similar.sort(Comparator.comparingInt(word -> editDistance(term, word, maxEdits)));
+        addUpTo(ids, similar, wanted);
+        return ids;
+    }
+
+    private boolean addUpTo(Map<Long, Integer> ids, List<String> words, int wanted) {
+        for (String word : words) {
+            int order = ids.size();
+            for (Long id : postings.getOrDefault(word, Set.of())) {
+                ids.putIfAbsent(id, order);
+                if (ids.size() >= wanted)
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    private ConcurrentNavigableMap<String, Set<Long>> withPrefix(String prefix) {
+        return postings.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+    }
+
+    private static int bestScore(String term, String[] words) {
+        int best = 0;
+        for (String word : words) {
+            if (word.equals(term))
+                return EXACT;
+            if (word.startsWith(term))
+                best = PREFIX;
+            else if (best == 0 && within(term, word))
+                best = FUZZY;
+        }
+        return best;
+    }
+
+    private static boolean within(String term, String word) {
+        if (term.length() < FUZZY_MIN_LENGTH)
+            return false;
+        int maxEdits = maxEdits(term);
+        return Math.abs(term.length() - word.length()) <= maxEdits && editDistance(term, word, maxEdits) <= maxEdits;
+    }
+
+    private static int maxEdits(String term) {
+        return term.length() >= 8 ? 2 : 1;
+    }
+
+    /**
+     * Distancia de Levenshtein entre a y b, o max + 1 en cuanto se sabe que la supera
+     */
+    static int editDistance(String a, String b, int max) {
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++)
+            previous[j] = j;
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > max)
+                return max + 1;
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+
+    static String[] words(String text) {
+        String normalized = MARKS.matcher(Normalizer.normalize(text.toLowerCase(Locale.ROOT), Normalizer.Form.NFD))
+                .replaceAll("");
+        return NON_ALPHANUMERIC.splitAsStream(normalized)
+                .filter(word -> !word.isEmpty())
+                .distinct()
+                .toArray(String[]::new);
+    }
+
+    public int size() {
+        return docs.size();
+    }
+}
@@ -0,0 +1,12 @@
+package com.certidevs.service;
+
+/**
+ * Cuándo se confirma una escritura de producto al cliente (cabecera X-Write-Durability)
+ *
+ * * SYNC: un INSERT/UPDATE por petición, como siempre
+ * * FLUSHED: pasa por ProductWriteBehind y se confirma cuando su lote se ha escrito en base de datos
+ * * MEMORY: se confirma al encolarla en ProductWriteBehind (202). Se pierde si la aplicación cae antes del flush
+ */
+public enum WriteDurability {
+    SYNC, FLUSHED, MEMORY
+}
@@ -1,4 +1,4 @@
-CREATE TABLE manufacturer (
+CREATE TABLE IF NOT EXISTS manufacturer (
 id BIGINT PRIMARY KEY AUTO_INCREMENT,
 name VARCHAR(255) NOT NULL,
 country VARCHAR(255),
@@ -6,7 +6,7 @@ foundation_year INT
 );
 
 -- AÑADIR UNIQUE A title PARA PROBAR ERROR CONFLICTO 409
-CREATE TABLE product (
+CREATE TABLE IF NOT EXISTS product (
  id BIGINT PRIMARY KEY AUTO_INCREMENT,
  title VARCHAR(255) NOT NULL UNIQUE,
     price DOUBLE,
@@ -17,3 +17,14 @@ CREATE TABLE product (
     FOREIGN KEY (manufacturer_id) REFERENCES manufacturer(id)
 );
 
+-- Columnas añadidas después de crear la tabla: ALTER para que también aparezcan en bases de datos ya existentes
+-- versión de la fila (@Version) y fecha de última modificación para ETag / Last-Modified
+ALTER TABLE product ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE product ADD COLUMN IF NOT EXISTS last_modified TIMESTAMP;
+
+-- Índices para las consultas de ProductRepository (ver ProductQueryPlanCheck)
+-- Incluyen id para devolver las filas ya ordenadas por clave primaria sin ordenar en memoria
+-- En PostgreSQL active podría ser un índice parcial: CREATE INDEX ... ON product (id) WHERE active
+CREATE INDEX IF NOT EXISTS idx_product_manufacturer_id ON product (manufacturer_id, id);
+CREATE INDEX IF NOT EXISTS idx_product_active ON product (active, id);
+CREATE INDEX IF NOT EXISTS idx_product_quantity ON product (quantity);
@@ -0,0 +1,103 @@
+package com.certidevs.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+    Test sin Spring: servidor HTTP local de ratings en el que la primera petición tarda slowFirst
+ */
+class HedgingPolicyTest {
+
+    private final AtomicInteger requests = new AtomicInteger();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private volatile Duration slowFirst = Duration.ZERO;
+
+    private DisposableServer server;
+    private WebClient client;
+
+    @BeforeEach
+    void setUp() {
+        server = HttpServer.create()
+                .port(0)
+                .route(routes -> routes.get("/ratings", (request, response) -> {
+                    Duration latency = requests.incrementAndGet() == 1 ? slowFirst : Duration.ZERO;
+                    return response.header("Content-Type", "application/json")
+                            .sendString(Mono.just("[{\"rate\":4.5,\"count\":10}]").delayElement(latency));
+                }))
+                .bindNow();
+        client = WebClient.create("http://localhost:" + server.port());
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.disposeNow();
+    }
+
+    @Test
+    void hedge_segundaLlamadaGanaSiLaPrimeraEsLenta() {
+        slowFirst = Duration.ofSeconds(2);
+        var policy = policy(1.0, 1);
+
+        Duration elapsed = StepVerifier.create(policy.hedge(this::ratings))
+                .expectNext("[{\"rate\":4.5,\"count\":10}]")
+                .verifyComplete();
+
+        assertTrue(elapsed.compareTo(Duration.ofSeconds(1)) < 0, "tardó " + elapsed);
+        assertEquals(2, requests.get());
+        assertEquals(1.0, count("fired"));
+        assertEquals(1.0, count("won"));
+    }
+
+    @Test
+    void hedge_primeraRapidaNoLanzaSegunda() {
+        var policy = policy(1.0, 1);
+
+        StepVerifier.create(policy.hedge(this::ratings))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        assertEquals(1, requests.get());
+        assertEquals(0.0, count("fired"));
+    }
+
+    @Test
+    void hedge_sinPresupuestoEsperaALaPrimera() {
+        slowFirst = Duration.ofMillis(300);
+        var policy = policy(0, 0);
+
+        Duration elapsed = StepVerifier.create(policy.hedge(this::ratings))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        assertTrue(elapsed.compareTo(Duration.ofMillis(300)) >= 0);
+        assertEquals(1, requests.get());
+        assertEquals(0.0, count("fired"));
+        assertEquals(1.0, count("rejected"));
+    }
+
+    // retardo fijo de 50 ms
+    private HedgingPolicy policy(double budget, int budgetBurst) {
+        return new HedgingPolicy("rating", meterRegistry, true, 0.95,
+                Duration.ofMillis(50), Duration.ofMillis(50), 0, budget, budgetBurst);
+    }
+
+    private Mono<String> ratings() {
+        return client.get().uri("/ratings?productId=1").retrieve().bodyToMono(String.class);
+    }
+
+    private double count(String event) {
+        return meterRegistry.get("products.hedge.requests").tag("event", event).counter().count();
+    }
+}
@@ -0,0 +1,83 @@
+package com.certidevs.config;
+
+import com.certidevs.entity.Product;
+import com.certidevs.repository.ProductRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+    Peticiones a los dos stacks (controlador y rutas funcionales) y lectura de /actuator/prometheus
+    (los tests de Spring Boot no exportan métricas si no se pide con @AutoConfigureObservability)
+ */
+@SpringBootTest(properties = "management.endpoints.web.exposure.include=prometheus")
+@AutoConfigureWebTestClient
+@AutoConfigureObservability(tracing = false)
+class PrometheusMetricsTest {
+
+    @Autowired
+    private WebTestClient client;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    Product product1;
+
+    @BeforeEach
+    void setUp() {
+        product1 = productRepository.save(Product.builder()
+                .title("Product 1")
+                .price(10.0)
+                .quantity(50)
+                .active(true)
+                .creationDate(LocalDateTime.now())
+                .build()).block();
+    }
+
+    @AfterEach
+    void tearDown() {
+        productRepository.deleteAll().block();
+    }
+
+    @Test
+    void prometheus_latenciaYResultadosPorStack() {
+        client.get().uri("/api/products/{id}", product1.getId()).exchange().expectStatus().isOk();
+        client.get().uri("/api/products/{id}", 999_999).exchange().expectStatus().isNotFound();
+        client.post().uri("/api/products")
+                .bodyValue(Product.builder().title("Product 1").price(1.0).quantity(1).build())
+                .exchange()
+                .expectStatus().isEqualTo(409);
+        client.get().uri("/api/route/products/{id}", product1.getId()).exchange().expectStatus().isOk();
+
+        String body = client.get().uri("/actuator/prometheus")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.TEXT_PLAIN)
+                .expectBody(String.class)
+                .returnResult()
+                .getResponseBody();
+
+        assertNotNull(body);
+        assertTrue(body.contains("# TYPE products_http_requests_seconds histogram"));
+        assertTrue(body.contains("products_http_requests_seconds_bucket{method=\"GET\",outcome=\"2xx\",route=\"/api/products/{id}\",stack=\"annotated\",le=\"0.001\"}"));
+        assertTrue(body.contains("products_http_requests_seconds_count{method=\"GET\",outcome=\"2xx\",route=\"/api/route/products/{id}\",stack=\"functional\"} 1"));
+        assertTrue(body.contains("products_http_outcomes_total{outcome=\"404\",stack=\"annotated\"} 1.0"));
+        assertTrue(body.contains("products_http_outcomes_total{outcome=\"409\",stack=\"annotated\"} 1.0"));
+        // el propio scrape no es un endpoint de productos
+        assertTrue(body.contains("products_http_in_flight{stack=\"annotated\"} 0.0"));
+        assertTrue(body.contains("products_r2dbc_query_seconds_bucket{method=\"findById\",outcome=\"success\",repository=\"ProductRepository\",le=\"+Inf\"}"));
+        // solo los buckets fijos de management.metrics.distribution.slo, no los de publishPercentileHistogram()
+        assertTrue(body.contains("r2dbc_pool_acquire_seconds_bucket{outcome=\"success\",le=\"2.5\"}"));
+        assertFalse(body.contains("le=\"0.001048576\""));
+    }
+}
@@ -0,0 +1,65 @@
+package com.certidevs.config;
+
+import com.certidevs.repository.ProductRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Wrapped;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import reactor.test.StepVerifier;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+    Con el log de SQL activado las consultas pasan por el proxy de Connection de InstrumentedConnectionFactory
+ */
+@SpringBootTest(properties = "products.r2dbc.log-statements=true")
+class R2dbcConfigTest {
+
+    @Autowired
+    private ConnectionFactory connectionFactory;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void connectionFactory_envuelveElPool() {
+        assertInstanceOf(InstrumentedConnectionFactory.class, connectionFactory);
+        assertInstanceOf(ConnectionPool.class, ((Wrapped<?>) connectionFactory).unwrap());
+    }
+
+    @Test
+    void metricas_esperaYEstadoDelPool() {
+        StepVerifier.create(productRepository.count())
+                .expectNextCount(1)
+                .verifyComplete();
+
+        var acquire = meterRegistry.get("r2dbc.pool.acquire").tag("outcome", "success").timer();
+        assertTrue(acquire.count() > 0);
+
+        // métricas de Spring Boot del ConnectionPool
+        assertNotNull(meterRegistry.get("r2dbc.pool.acquired").gauge());
+        assertNotNull(meterRegistry.get("r2dbc.pool.idle").gauge());
+        assertNotNull(meterRegistry.get("r2dbc.pool.pending").gauge());
+    }
+
+    @Test
+    void metricas_consultasPorMetodoDeRepositorio() {
+        StepVerifier.create(productRepository.findByTitle("no existe")).verifyComplete();
+
+        var query = meterRegistry.get("products.r2dbc.query")
+                .tag("repository", "ProductRepository")
+                .tag("method", "findByTitle")
+                .tag("outcome", "success")
+                .timer();
+        assertEquals(1, query.count());
+        assertTrue(query.totalTime(TimeUnit.NANOSECONDS) > 0);
+    }
+}
@@ -0,0 +1,130 @@
+package com.certidevs.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+    Test sin Spring: servidor HTTP local de fabricantes con estado y latencia configurables
+ */
+class UpstreamGuardTest {
+
+    private final AtomicInteger requests = new AtomicInteger();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private volatile int status = 500;
+    private volatile Duration latency = Duration.ZERO;
+    private volatile Duration bodyLatency = Duration.ZERO;
+
+    private DisposableServer server;
+
+    @BeforeEach
+    void setUp() {
+        server = HttpServer.create()
+                .port(0)
+                .route(routes -> routes.get("/manufacturers/{id}", (request, response) -> {
+                    requests.incrementAndGet();
+                    // cabeceras y primer fragmento del cuerpo tras latency, el resto bodyLatency después
+                    return Mono.delay(latency).then(response.status(status)
+                            .header("Content-Type", "application/json")
+                            .sendString(Flux.concat(Mono.just("{\"id\":"), Mono.delay(bodyLatency).thenReturn("1}")))
+                            .then());
+                }))
+                .bindNow();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.disposeNow();
+    }
+
+    @Test
+    void circuitBreaker_abreTrasFallosYRechazaSinLlamar() {
+        var guard = guard(10);
+        var client = client(guard);
+
+        for (int i = 0; i < 4; i++)
+            StepVerifier.create(manufacturer(client)).verifyError(WebClientResponseException.InternalServerError.class);
+        assertEquals(UpstreamGuard.State.OPEN, guard.state());
+
+        StepVerifier.create(manufacturer(client)).verifyError(UpstreamRejectedException.class);
+        assertEquals(4, requests.get());
+        assertEquals(1.0, meterRegistry.get("products.upstream.rejected").tag("reason", "circuit_open").counter().count());
+    }
+
+    @Test
+    void circuitBreaker_semiabiertoCierraSiLaPruebaVaBien() throws InterruptedException {
+        var guard = guard(10);
+        var client = client(guard);
+        for (int i = 0; i < 4; i++)
+            StepVerifier.create(manufacturer(client)).verifyError();
+        assertEquals(UpstreamGuard.State.OPEN, guard.state());
+
+        status = 200;
+        Thread.sleep(250);
+        assertEquals(UpstreamGuard.State.HALF_OPEN, guard.state());
+
+        StepVerifier.create(manufacturer(client)).expectNext("{\"id\":1}").verifyComplete();
+        assertEquals(UpstreamGuard.State.CLOSED, guard.state());
+    }
+
+    @Test
+    void bulkhead_rechazaLlamadasPorEncimaDelLimite() {
+        status = 200;
+        latency = Duration.ofMillis(300);
+        var client = client(guard(1));
+
+        StepVerifier.create(Mono.zip(
+                        manufacturer(client),
+                        Mono.delay(Duration.ofMillis(50)).then(manufacturer(client))))
+                .verifyError(UpstreamRejectedException.class);
+        assertEquals(1.0, meterRegistry.get("products.upstream.rejected").tag("reason", "bulkhead_full").counter().count());
+    }
+
+    @Test
+    void bulkhead_cuentaLaLlamadaHastaLeerElCuerpo() {
+        status = 200;
+        var client = client(guard(1));
+        // primera llamada para abrir la conexión: no cuenta en los tiempos del test
+        StepVerifier.create(manufacturer(client)).expectNext("{\"id\":1}").verifyComplete();
+        bodyLatency = Duration.ofMillis(300);
+
+        // la primera ya tiene las cabeceras pero no el cuerpo: sigue ocupando el bulkhead
+        StepVerifier.create(Mono.zip(
+                        manufacturer(client),
+                        Mono.delay(Duration.ofMillis(100)).then(manufacturer(client))))
+                .verifyError(UpstreamRejectedException.class);
+
+        StepVerifier.create(manufacturer(client)).expectNext("{\"id\":1}").verifyComplete();
+        assertEquals(0.0, meterRegistry.get("products.upstream.in-flight").gauge().value());
+    }
+
+    // ventana de 4 llamadas, abre con el 50% de fallos durante 200 ms y prueba con 1 llamada
+    private UpstreamGuard guard(int maxConcurrentCalls) {
+        return new UpstreamGuard("manufacturer", meterRegistry, maxConcurrentCalls,
+                4, 4, 50, Duration.ofSeconds(1), 80, Duration.ofMillis(200), 1);
+    }
+
+    private WebClient client(UpstreamGuard guard) {
+        return WebClient.builder()
+                .baseUrl("http://localhost:" + server.port())
+                .filter(guard)
+                .build();
+    }
+
+    private Mono<String> manufacturer(WebClient client) {
+        return client.get().uri("/manufacturers/1").retrieve().bodyToMono(String.class);
+    }
+}
@@ -0,0 +1,182 @@
+package com.certidevs.controller;
+
+import com.certidevs.entity.Product;
+import com.certidevs.repository.ManufacturerRepository;
+import com.certidevs.repository.ProductRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/*
+    Test de integración del controlador con anotaciones /api/products
+ */
+@SpringBootTest
+@AutoConfigureWebTestClient
+class ProductControllerTest {
+
+    @Autowired
+    private WebTestClient client;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ManufacturerRepository manufacturerRepository;
+
+    Product product1;
+    Product product2;
+    Product product3;
+
+    @BeforeEach
+    void setUp() {
+        product1 = Product.builder()
+                .title("Product 1")
+                .price(10.0)
+                .quantity(50)
+                .active(true)
+                .creationDate(LocalDateTime.now().minusDays(10))
+                .build();
+        product2 = Product.builder()
+                .title("Product 2")
+                .price(20.0)
+                .quantity(5)
+                .active(false)
+                .creationDate(LocalDateTime.now().minusDays(5))
+                .build();
+        product3 = Product.builder()
+                .title("Product 3")
+                .price(5.0)
+                .quantity(1)
+                .active(true)
+                .creationDate(LocalDateTime.now().minusDays(10))
+                .build();
+        Flux<Product> products = productRepository.saveAll(List.of(product1, product2, product3));
+        products.collectList().block();
+    }
+
+    @AfterEach
+    void tearDown() {
+        productRepository.deleteAll()
+                .then(manufacturerRepository.deleteAll()).block();
+    }
+
+    @Test
+    void findById_getCondicional() {
+        String etag = client.get().uri("/api/products/{id}", product1.getId())
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(Product.class)
+                .getResponseHeaders().getETag();
+        Assertions.assertNotNull(etag);
+
+        client.get().uri("/api/products/{id}", product1.getId())
+                .ifNoneMatch(etag)
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectBody().isEmpty();
+
+        // reduce-quantity cambia la versión de la fila con un UPDATE directo
+        client.put().uri("/api/products/{id}/reduce-quantity?amount=1", product1.getId())
+                .exchange()
+                .expectStatus().isOk();
+        client.get().uri("/api/products/{id}", product1.getId())
+                .ifNoneMatch(etag)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(Product.class)
+                .value(product -> Assertions.assertEquals(49, product.getQuantity()));
+    }
+
+    @Test
+    void export_ndjson() {
+        Flux<Map<String, Object>> body = client.get()
+                .uri("/api/products/export?fields=id,title&fetchSize=2")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .returnResult(new ParameterizedTypeReference<Map<String, Object>>() {})
+                .getResponseBody();
+
+        // solo se envían las columnas pedidas y los títulos no se transforman
+        StepVerifier.create(body)
+                .expectNextMatches(p -> p.keySet().equals(Set.of("id", "title")) && p.get("title").equals("Product 1"))
+                .expectNextMatches(p -> p.get("title").equals("Product 2"))
+                .expectNextMatches(p -> p.get("title").equals("Product 3"))
+                .verifyComplete();
+    }
+
+    @Test
+    void export_sse() {
+        client.get()
+                .uri("/api/products/export?fields=id,price")
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.TEXT_EVENT_STREAM);
+    }
+
+    @Test
+    void export_campoNoValido() {
+        client.get()
+                .uri("/api/products/export?fields=id,password")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void lowStock_umbralNoValido() {
+        client.get()
+                .uri("/api/products/low-stock?threshold=0")
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void bulkCreate() {
+        // "Product 1" ya existe y "Product 5" está repetido dentro de la carga
+        String ndjson = """
+                {"title":"Product 4","price":1.0,"quantity":10}
+                {"title":"Product 1","price":2.0,"quantity":10}
+                {"title":"Product 5","price":3.0,"quantity":10}
+                {"title":"Product 5","price":4.0,"quantity":10}
+                {"title":"Product 6","price":5.0,"quantity":10}
+                """;
+
+        client.post().uri("/api/products/bulk")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .bodyValue(ndjson)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.received").isEqualTo(5)
+                .jsonPath("$.inserted").isEqualTo(3)
+                .jsonPath("$.conflictCount").isEqualTo(2)
+                .jsonPath("$.errorCount").isEqualTo(0)
+                .jsonPath("$.conflicts[0].row").isEqualTo(1)
+                .jsonPath("$.conflicts[0].title").isEqualTo("Product 1")
+                .jsonPath("$.conflicts[1].row").isEqualTo(3)
+                .jsonPath("$.rowsPerSecond").isNumber();
+
+        productRepository.count()
+                .as(StepVerifier::create)
+                .expectNext(6L)
+                .verifyComplete();
+    }
+}
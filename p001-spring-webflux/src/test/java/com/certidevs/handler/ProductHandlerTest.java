@@ -4,6 +4,7 @@ import com.certidevs.entity.Manufacturer;
 import com.certidevs.entity.Product;
 import com.certidevs.repository.ManufacturerRepository;
 import com.certidevs.repository.ProductRepository;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
@@ -11,6 +12,7 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import reactor.core.publisher.Flux;
@@ -39,6 +41,9 @@ class ProductHandlerTest {
     @Autowired
     private ManufacturerRepository manufacturerRepository;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     Manufacturer manufacturer;
     Product product1;
     Product product2;
@@ -138,6 +143,55 @@ class ProductHandlerTest {
                 .isEmpty();
     }
 
+    @Test
+    void findById_getCondicional() {
+        String etag = client.get().uri("/api/route/products/{id}", product1.getId())
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().exists(HttpHeaders.LAST_MODIFIED)
+                .returnResult(Product.class)
+                .getResponseHeaders().getETag();
+        assertNotNull(etag);
+
+        // el cliente ya tiene la versión actual: 304 sin cuerpo
+        client.get().uri("/api/route/products/{id}", product1.getId())
+                .ifNoneMatch(etag)
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, etag)
+                .expectBody().isEmpty();
+
+        // tras modificarlo el ETag anterior ya no vale
+        client.put().uri("/api/route/products/{id}", product1.getId())
+                .bodyValue(Product.builder().price(15.0).quantity(40).build())
+                .exchange()
+                .expectStatus().isOk();
+        client.get().uri("/api/route/products/{id}", product1.getId())
+                .ifNoneMatch(etag)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().value(HttpHeaders.ETAG, newEtag -> assertNotEquals(etag, newEtag))
+                .expectBody(Product.class)
+                .value(product -> assertEquals(15.0, product.getPrice()));
+    }
+
+    @Test
+    void endpointMetrics_registraLatenciaPorPatronDeRuta() {
+        client.get().uri("/api/route/products/{id}", product1.getId())
+                .exchange()
+                .expectStatus().isOk();
+        client.get().uri("/api/route/products/{id}", 99)
+                .exchange()
+                .expectStatus().isNotFound();
+
+        var ok = meterRegistry.get("products.http.requests")
+                .tags("stack", "functional", "route", "/api/route/products/{id}", "method", "GET", "outcome", "2xx").timer();
+        var notFound = meterRegistry.get("products.http.requests")
+                .tags("stack", "functional", "route", "/api/route/products/{id}", "method", "GET", "outcome", "404").timer();
+        assertTrue(ok.count() >= 1);
+        assertTrue(notFound.count() >= 1);
+    }
+
     @Test
     void create() {
         var product = Product.builder()
@@ -241,6 +295,85 @@ class ProductHandlerTest {
         productRepository.existsById(product1.getId()).subscribe(Assertions::assertFalse);
     }
 
+    @Test
+    void search_prefijoYErrataHastaBorrar() {
+        var created = client.post().uri("/api/route/products")
+                .bodyValue(Product.builder().title("Cafetera Italiana Inducción").price(30.0).quantity(5).build())
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody(Product.class)
+                .returnResult()
+                .getResponseBody();
 
+        client.get().uri("/api/route/products/search?q=cafet induccion")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$[0].id").isEqualTo(created.getId())
+                .jsonPath("$[0].title").isEqualTo("Cafetera Italiana Inducción");
+
+        client.get().uri("/api/route/products/search?q=italaina")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$[0].id").isEqualTo(created.getId());
+
+        client.get().uri("/api/route/products/search?q=cafetera&limit=0")
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        client.delete().uri("/api/route/products/{id}", created.getId())
+                .exchange()
+                .expectStatus().isNoContent();
+
+        client.get().uri("/api/route/products/search?q=cafetera")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(0);
+    }
+
+    @Test
+    void findAllPaginatedByCursor() {
+        var firstPage = client.get()
+                .uri(builder -> builder.path("/api/route/products/paginated-cursor")
+                        .queryParam("size", 2)
+                        .queryParam("total", true)
+                        .build())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.items.length()").isEqualTo(2)
+                .jsonPath("$.items[0].id").isEqualTo(product1.getId())
+                .jsonPath("$.items[1].id").isEqualTo(product2.getId())
+                .jsonPath("$.total").isEqualTo(3)
+                .jsonPath("$.nextCursor").isNotEmpty()
+                .returnResult()
+                .getResponseBody();
+        assertNotNull(firstPage);
+
+        String nextCursor = com.jayway.jsonpath.JsonPath.read(new String(firstPage), "$.nextCursor");
+
+        client.get()
+                .uri(builder -> builder.path("/api/route/products/paginated-cursor")
+                        .queryParam("size", 2)
+                        .queryParam("cursor", nextCursor)
+                        .build())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.items.length()").isEqualTo(1)
+                .jsonPath("$.items[0].id").isEqualTo(product3.getId())
+                .jsonPath("$.nextCursor").doesNotExist()
+                .jsonPath("$.total").doesNotExist();
+
+        client.get().uri("/api/route/products/paginated-cursor?cursor=no-valido")
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        client.get().uri("/api/route/products/paginated-cursor?size=101")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
 
-}
\ No newline at end of file
+}
@@ -1,5 +1,6 @@
 package com.certidevs.repository;
 
+import com.certidevs.config.ProductQueryPlanCheck;
 import com.certidevs.entity.Manufacturer;
 import com.certidevs.entity.Product;
 import org.junit.jupiter.api.AfterEach;
@@ -9,6 +10,8 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.data.r2dbc.DataR2dbcTest;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.context.TestComponent;
+import org.springframework.context.annotation.Import;
+import org.springframework.r2dbc.core.DatabaseClient;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
@@ -20,6 +23,7 @@ import static org.junit.jupiter.api.Assertions.*;
 
 // @SpringBootTest
 @DataR2dbcTest
+@Import(ProductQueryPlanCheck.class)
 class ProductRepositoryTest {
 
     @Autowired
@@ -28,6 +32,12 @@ class ProductRepositoryTest {
     @Autowired
     private ManufacturerRepository manufacturerRepository;
 
+    @Autowired
+    private ProductQueryPlanCheck productQueryPlanCheck;
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
     Manufacturer manufacturer;
     Product product1;
     Product product2;
@@ -189,5 +199,61 @@ class ProductRepositoryTest {
                 .verifyComplete();
     }
 
+    @Test
+    void findByIdWithManufacturer() {
+        productRepository.findByIdWithManufacturer(product1.getId())
+                .as(StepVerifier::create)
+                .expectNextMatches(p -> p.getTitle().equals("Product 1")
+                        && p.getManufacturer().getName().equals("CertiDevs"))
+                .verifyComplete();
+
+        productRepository.findByIdWithManufacturer(product3.getId())
+                .as(StepVerifier::create)
+                .expectNextMatches(p -> p.getManufacturer() == null)
+                .verifyComplete();
+    }
+
+    @Test
+    void findAllWithProducts_agrupaLasFilasDelJoinPorFabricante() {
+        var withoutProducts = manufacturerRepository.save(Manufacturer.builder().name("Sin productos").build()).block();
+
+        manufacturerRepository.findAllWithProducts(1)
+                .as(StepVerifier::create)
+                .expectNextMatches(m -> m.getId().equals(manufacturer.getId())
+                        && m.getProducts().stream().map(Product::getTitle).toList().equals(List.of("Product 1", "Product 2")))
+                .expectNextMatches(m -> m.getId().equals(withoutProducts.getId()) && m.getProducts().isEmpty())
+                .verifyComplete();
+
+        manufacturerRepository.findByIdWithProducts(manufacturer.getId())
+                .as(StepVerifier::create)
+                .expectNextMatches(m -> m.getProducts().size() == 2)
+                .verifyComplete();
+        manufacturerRepository.findByIdWithProducts(999L)
+                .as(StepVerifier::create)
+                .verifyComplete();
+    }
+
+    @Test
+    void queryPlans_usanIndices() {
+        productQueryPlanCheck.checkPlans()
+                .filter(ProductQueryPlanCheck.QueryPlan::fullScan)
+                .as(StepVerifier::create)
+                .verifyComplete();
+    }
+
+    @Test
+    void queryPlans_sinIndiceDetectaFullScan() {
+        databaseClient.sql("DROP INDEX idx_product_quantity").then().block();
+        try {
+            productQueryPlanCheck.checkPlans()
+                    .filter(ProductQueryPlanCheck.QueryPlan::fullScan)
+                    .map(ProductQueryPlanCheck.QueryPlan::query)
+                    .as(StepVerifier::create)
+                    .expectNext("findByQuantityLessThan")
+                    .verifyComplete();
+        } finally {
+            databaseClient.sql("CREATE INDEX idx_product_quantity ON product (quantity)").then().block();
+        }
+    }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,143 @@
+package com.certidevs.route;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ReactorHttpHandlerAdapter;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.server.adapter.WebHttpHandlerBuilder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+    Test sin Spring: servidor HTTP local con el filtro delante de un handler lento y generador de carga con WebClient
+ */
+class ConcurrencyLimitFilterTest {
+
+    private final AtomicInteger inHandler = new AtomicInteger();
+    private final AtomicInteger maxInHandler = new AtomicInteger();
+    private final Sinks.Empty<Void> gate = Sinks.empty();
+
+    private DisposableServer server;
+    private WebClient client;
+
+    @AfterEach
+    void tearDown() {
+        gate.tryEmitEmpty();
+        if (server != null)
+            server.disposeNow();
+    }
+
+    private ConcurrencyLimitFilter start(int initial, int min, int max) {
+        var filter = new ConcurrencyLimitFilter(new SimpleMeterRegistry(), true, initial, min, max, 1.5, 0.2, 10, Duration.ofSeconds(1));
+        var httpHandler = WebHttpHandlerBuilder.webHandler(exchange -> {
+                    String path = exchange.getRequest().getPath().value();
+                    maxInHandler.accumulateAndGet(inHandler.incrementAndGet(), Math::max);
+                    Mono<Void> work = path.endsWith("/wait") ? gate.asMono()
+                            : path.endsWith("/slow") ? Mono.delay(Duration.ofMillis(100)).then()
+                            : Mono.empty();
+                    return work.doFinally(signal -> inHandler.decrementAndGet());
+                })
+                .filter(filter)
+                .build();
+        server = HttpServer.create().port(0).handle(new ReactorHttpHandlerAdapter(httpHandler)).bindNow();
+        client = WebClient.create("http://localhost:" + server.port());
+        return filter;
+    }
+
+    private Mono<ResponseEntity<Void>> get(String path) {
+        return client.get().uri(path).retrieve().toBodilessEntity()
+                .onErrorResume(e -> Mono.empty());
+    }
+
+    private Mono<ResponseEntity<Void>> exchange(String method, String path) {
+        return client.method(HttpMethod.valueOf(method)).uri(path)
+                .exchangeToMono(response -> response.toBodilessEntity());
+    }
+
+    @Test
+    void carga_rechazaElExcesoCon503YRetryAfter() {
+        start(5, 5, 5);
+
+        List<ResponseEntity<Void>> responses = Flux.range(0, 40)
+                .flatMap(i -> exchange("GET", "/api/products/slow"), 40)
+                .collectList()
+                .block(Duration.ofSeconds(10));
+
+        var rejected = responses.stream().filter(r -> r.getStatusCode() == HttpStatus.SERVICE_UNAVAILABLE).toList();
+        assertEquals(40, responses.size());
+        assertFalse(rejected.isEmpty());
+        assertTrue(rejected.stream().allMatch(r -> "1".equals(r.getHeaders().getFirst(HttpHeaders.RETRY_AFTER))));
+        assertTrue(maxInHandler.get() <= 5);
+    }
+
+    @Test
+    void prioridad_lecturasPorDelanteDeEscriturasMasivas() {
+        start(10, 10, 10);
+
+        // 5 lecturas ocupan la mitad del límite hasta abrir la puerta
+        Flux.range(0, 5).flatMap(i -> get("/api/products/wait")).subscribe();
+        for (int i = 0; i < 100 && inHandler.get() < 5; i++)
+            Mono.delay(Duration.ofMillis(20)).block();
+        assertEquals(5, inHandler.get());
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, exchange("POST", "/api/products/bulk").block().getStatusCode());
+        assertEquals(HttpStatus.OK, exchange("PUT", "/api/products/1").block().getStatusCode());
+        assertEquals(HttpStatus.OK, exchange("GET", "/api/products/1").block().getStatusCode());
+        // fuera de las rutas de productos no se limita
+        assertEquals(HttpStatus.OK, exchange("GET", "/actuator/health").block().getStatusCode());
+        // ni en rutas que solo empiezan por el mismo texto
+        assertEquals(HttpStatus.OK, exchange("GET", "/api/productsX").block().getStatusCode());
+    }
+
+    @Test
+    void streams_exentosPorRutaNoPorAccept() {
+        start(10, 10, 10);
+
+        Flux.range(0, 10).flatMap(i -> get("/api/products/wait")).subscribe();
+        for (int i = 0; i < 100 && inHandler.get() < 10; i++)
+            Mono.delay(Duration.ofMillis(20)).block();
+        assertEquals(10, inHandler.get());
+
+        assertEquals(HttpStatus.OK, exchange("GET", "/api/products/export").block().getStatusCode());
+        // pedir un stream en Accept no salta el límite
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, client.get().uri("/api/products/1")
+                .header(HttpHeaders.ACCEPT, "text/event-stream")
+                .exchangeToMono(response -> response.toBodilessEntity())
+                .block().getStatusCode());
+    }
+
+    @Test
+    void onSample_ajustaElLimiteSegunLaLatencia() {
+        var filter = new ConcurrencyLimitFilter(new SimpleMeterRegistry(), true, 20, 5, 100, 1.5, 0.2, 10, Duration.ofSeconds(1));
+
+        for (int i = 0; i < 100; i++)
+            filter.onSample(Duration.ofMillis(10).toNanos(), (int) filter.limit());
+        double afterFast = filter.limit();
+        assertTrue(afterFast > 20);
+
+        // latencia x10: el límite baja
+        for (int i = 0; i < 100; i++)
+            filter.onSample(Duration.ofMillis(100).toNanos(), (int) filter.limit());
+        assertTrue(filter.limit() < afterFast);
+
+        // sin carga (pocas peticiones en curso) no sube
+        double before = filter.limit();
+        for (int i = 0; i < 100; i++)
+            filter.onSample(Duration.ofMillis(1).toNanos(), 1);
+        assertEquals(before, filter.limit());
+    }
+}
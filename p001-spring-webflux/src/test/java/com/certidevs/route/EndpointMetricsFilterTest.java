@@ -0,0 +1,41 @@
+package com.certidevs.route;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+    Test sin Spring: el filtro delante de una cadena que no termina hasta que se cancela
+ */
+class EndpointMetricsFilterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final EndpointMetricsFilter filter = new EndpointMetricsFilter(meterRegistry);
+
+    @Test
+    void cancelada_seCuentaComoCancelledYNoComo2xx() {
+        var exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/route/products/1"));
+
+        filter.filter(exchange, e -> Mono.never()).subscribe().dispose();
+
+        assertEquals(1, meterRegistry.get("products.http.outcomes")
+                .tags("stack", "functional", "outcome", EndpointMetricsFilter.CANCELLED).counter().count());
+        assertNull(meterRegistry.find("products.http.outcomes").tags("outcome", "2xx").counter());
+        assertEquals(0, meterRegistry.get("products.http.in-flight").tags("stack", "functional").gauge().value());
+    }
+
+    @Test
+    void completada_unaSolaVez() {
+        var exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/products/1"));
+
+        filter.filter(exchange, e -> Mono.empty()).subscribe().dispose();
+
+        assertEquals(1, meterRegistry.get("products.http.requests")
+                .tags("stack", "annotated", "outcome", "2xx").timer().count());
+        assertNull(meterRegistry.find("products.http.outcomes").tags("outcome", EndpointMetricsFilter.CANCELLED).counter());
+    }
+}
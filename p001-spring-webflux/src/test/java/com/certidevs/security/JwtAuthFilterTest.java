@@ -0,0 +1,73 @@
+package com.certidevs.security;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import java.security.KeyPair;
+import java.time.Instant;
+import java.util.Map;
+
+/*
+    Rutas /api/route/products con security.jwt.enabled=true y un JWK set servido en local
+ */
+@SpringBootTest(properties = "security.jwt.enabled=true")
+@AutoConfigureWebTestClient
+class JwtAuthFilterTest {
+
+    private static final KeyPair KEY = JwtKeys.keyPair();
+    private static final DisposableServer JWKS_SERVER = HttpServer.create()
+            .port(0)
+            .route(routes -> routes.get("/jwks.json", (request, response) -> response
+                    .header("Content-Type", "application/json")
+                    .sendString(Mono.just(JwtKeys.jwks(Map.of("k1", KEY))))))
+            .bindNow();
+
+    @DynamicPropertySource
+    static void jwksUrl(DynamicPropertyRegistry registry) {
+        registry.add("upstream.jwks.url", () -> "http://localhost:" + JWKS_SERVER.port() + "/jwks.json");
+    }
+
+    @AfterAll
+    static void stopJwksServer() {
+        JWKS_SERVER.disposeNow();
+    }
+
+    @Autowired
+    private WebTestClient client;
+
+    @Test
+    void sinToken401() {
+        client.get().uri("/api/route/products")
+                .exchange()
+                .expectStatus().isUnauthorized()
+                .expectHeader().valueEquals(HttpHeaders.WWW_AUTHENTICATE, "Bearer");
+    }
+
+    @Test
+    void tokenCaducado401() {
+        String token = JwtKeys.sign(KEY, "k1", Map.of("sub", "user1", "exp", Instant.now().minusSeconds(300).getEpochSecond()));
+        client.get().uri("/api/route/products")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                .exchange()
+                .expectStatus().isUnauthorized();
+    }
+
+    @Test
+    void tokenValido200() {
+        String token = JwtKeys.sign(KEY, "k1", Map.of("sub", "user1", "exp", Instant.now().plusSeconds(300).getEpochSecond()));
+        client.get().uri("/api/route/products")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                .exchange()
+                .expectStatus().isOk();
+    }
+}
@@ -0,0 +1,80 @@
+package com.certidevs.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Signature;
+import java.security.interfaces.RSAPublicKey;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+
+/*
+    Claves RSA locales para firmar tokens en tests y benchmarks, sin proveedor de identidad externo
+ */
+public class JwtKeys {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final Base64.Encoder BASE64URL = Base64.getUrlEncoder().withoutPadding();
+
+    public static KeyPair keyPair() {
+        try {
+            var generator = KeyPairGenerator.getInstance("RSA");
+            generator.initialize(2048);
+            return generator.generateKeyPair();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // {"keys":[{"kty":"RSA","kid":...,"n":...,"e":...}]}
+    public static String jwks(Map<String, KeyPair> keys) {
+        var jwks = keys.entrySet().stream()
+                .map(entry -> {
+                    var publicKey = (RSAPublicKey) entry.getValue().getPublic();
+                    return Map.of(
+                            "kty", "RSA",
+                            "kid", entry.getKey(),
+                            "alg", "RS256",
+                            "use", "sig",
+                            "n", base64url(publicKey.getModulus()),
+                            "e", base64url(publicKey.getPublicExponent()));
+                })
+                .toList();
+        return json(Map.of("keys", jwks));
+    }
+
+    public static String sign(KeyPair keyPair, String kid, Map<String, Object> claims) {
+        try {
+            String signingInput = BASE64URL.encodeToString(json(Map.of("alg", "RS256", "typ", "JWT", "kid", kid)).getBytes(StandardCharsets.UTF_8))
+                    + "." + BASE64URL.encodeToString(json(claims).getBytes(StandardCharsets.UTF_8));
+            var signature = Signature.getInstance("SHA256withRSA");
+            signature.initSign(keyPair.getPrivate());
+            signature.update(signingInput.getBytes(StandardCharsets.US_ASCII));
+            return signingInput + "." + BASE64URL.encodeToString(signature.sign());
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // BigInteger sin el byte de signo que añade toByteArray
+    private static String base64url(BigInteger value) {
+        byte[] bytes = value.toByteArray();
+        if (bytes[0] == 0)
+            bytes = Arrays.copyOfRange(bytes, 1, bytes.length);
+        return BASE64URL.encodeToString(bytes);
+    }
+
+    private static String json(Object value) {
+        try {
+            return MAPPER.writeValueAsString(value);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
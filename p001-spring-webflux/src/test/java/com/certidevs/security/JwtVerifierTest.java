@@ -0,0 +1,117 @@
+package com.certidevs.security;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.test.StepVerifier;
+
+import java.security.KeyPair;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+    Test sin Spring: servidor HTTP local que publica el JWK set con claves generadas en el test
+ */
+class JwtVerifierTest {
+
+    private final KeyPair key1 = JwtKeys.keyPair();
+    private final KeyPair key2 = JwtKeys.keyPair();
+    private final Map<String, KeyPair> published = new ConcurrentHashMap<>(Map.of("k1", key1));
+    private final AtomicInteger jwksRequests = new AtomicInteger();
+
+    private DisposableServer server;
+    private JwtVerifier verifier;
+
+    @BeforeEach
+    void setUp() {
+        server = HttpServer.create()
+                .port(0)
+                .route(routes -> routes.get("/jwks.json", (request, response) -> {
+                    jwksRequests.incrementAndGet();
+                    return response.header("Content-Type", "application/json")
+                            .sendString(Mono.fromSupplier(() -> JwtKeys.jwks(published)));
+                }))
+                .bindNow();
+
+        var client = WebClient.create("http://localhost:" + server.port() + "/jwks.json");
+        verifier = new JwtVerifier(client, "https://idp.certidevs.com", Duration.ofSeconds(30),
+                Duration.ofMinutes(5), Duration.ZERO, 100);
+    }
+
+    @AfterEach
+    void tearDown() {
+        verifier.close();
+        server.disposeNow();
+    }
+
+    private Map<String, Object> claims(Instant exp) {
+        return Map.of("sub", "user1", "iss", "https://idp.certidevs.com", "exp", exp.getEpochSecond());
+    }
+
+    @Test
+    void verify_tokenValido() {
+        String token = JwtKeys.sign(key1, "k1", claims(Instant.now().plusSeconds(300)));
+
+        StepVerifier.create(verifier.verify(token))
+                .expectNextMatches(jwt -> jwt.subject().equals("user1"))
+                .verifyComplete();
+    }
+
+    @Test
+    void verify_segundaVezDesdeCache() {
+        String token = JwtKeys.sign(key1, "k1", claims(Instant.now().plusSeconds(300)));
+
+        Jwt first = verifier.verify(token).block();
+        Jwt second = verifier.verify(token).block();
+        assertSame(first, second);
+        assertNotSame(first, verifier.verifyUncached(token).block());
+    }
+
+    @Test
+    void verify_rechazaCaducadoFirmaIncorrectaYOtroEmisor() {
+        String expired = JwtKeys.sign(key1, "k1", claims(Instant.now().minusSeconds(300)));
+        StepVerifier.create(verifier.verify(expired))
+                .expectError(InvalidTokenException.class)
+                .verify();
+
+        // firmado con una clave que no es la publicada con ese kid
+        String forged = JwtKeys.sign(key2, "k1", claims(Instant.now().plusSeconds(300)));
+        StepVerifier.create(verifier.verify(forged))
+                .expectError(InvalidTokenException.class)
+                .verify();
+
+        String otherIssuer = JwtKeys.sign(key1, "k1",
+                Map.of("sub", "user1", "iss", "https://otro.com", "exp", Instant.now().plusSeconds(300).getEpochSecond()));
+        StepVerifier.create(verifier.verify(otherIssuer))
+                .expectError(InvalidTokenException.class)
+                .verify();
+
+        StepVerifier.create(verifier.verify("no.es-un-token"))
+                .expectError(InvalidTokenException.class)
+                .verify();
+    }
+
+    @Test
+    void verify_kidDesconocidoRecargaElJwkSet() {
+        verifier.verify(JwtKeys.sign(key1, "k1", claims(Instant.now().plusSeconds(300)))).block();
+        int requestsBefore = jwksRequests.get();
+
+        // el proveedor rota las claves
+        published.put("k2", key2);
+        String token = JwtKeys.sign(key2, "k2", claims(Instant.now().plusSeconds(300)));
+
+        StepVerifier.create(verifier.verify(token))
+                .expectNextMatches(jwt -> jwt.subject().equals("user1"))
+                .verifyComplete();
+        assertEquals(requestsBefore + 1, jwksRequests.get());
+    }
+}
@@ -0,0 +1,134 @@
+package com.certidevs.service;
+
+import com.certidevs.config.HedgingPolicy;
+import com.certidevs.entity.Manufacturer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+    Test sin Spring: servidor HTTP local que simula los microservicios de fabricantes y ratings
+ */
+class EnrichmentCacheTest {
+
+    private final AtomicInteger manufacturerRequests = new AtomicInteger();
+    private final AtomicInteger ratingRequests = new AtomicInteger();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private DisposableServer server;
+    private EnrichmentCache cache;
+
+    @BeforeEach
+    void setUp() {
+        server = HttpServer.create()
+                .port(0)
+                .route(routes -> routes
+                        .get("/manufacturers/{id}", (request, response) -> {
+                            manufacturerRequests.incrementAndGet();
+                            String id = request.param("id");
+                            if ("99".equals(id))
+                                return response.status(404).send();
+                            return response.header("Content-Type", "application/json")
+                                    .sendString(Mono.just("{\"id\":" + id + ",\"name\":\"Manufacturer " + id + "\"}"));
+                        })
+                        .get("/ratings", (request, response) -> {
+                            ratingRequests.incrementAndGet();
+                            // el producto 2 no tiene valoraciones, el 99 no existe
+                            String productId = request.uri().substring(request.uri().indexOf('=') + 1);
+                            if ("99".equals(productId))
+                                return response.status(404).send();
+                            return response.header("Content-Type", "application/json")
+                                    .sendString(Mono.just("2".equals(productId) ? "[]" : "[{\"rate\":4.5,\"count\":10}]"));
+                        }))
+                .bindNow();
+
+        cache = cache(Duration.ofMinutes(1));
+    }
+
+    private EnrichmentCache cache(Duration negativeTtl) {
+        var client = WebClient.create("http://localhost:" + server.port());
+        return new EnrichmentCache(client, client, HedgingPolicy.disabled("rating", meterRegistry), meterRegistry, 100,
+                Duration.ofMinutes(10), Duration.ofMinutes(5),
+                Duration.ofMinutes(10), Duration.ofMinutes(5),
+                negativeTtl);
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.disposeNow();
+    }
+
+    @Test
+    void manufacturer_segundaLlamadaSaleDeCache() {
+        StepVerifier.create(cache.manufacturer(1L))
+                .expectNextMatches(m -> m.getName().equals("Manufacturer 1"))
+                .verifyComplete();
+        StepVerifier.create(cache.manufacturer(1L))
+                .expectNextMatches(m -> m.getName().equals("Manufacturer 1"))
+                .verifyComplete();
+
+        assertEquals(1, manufacturerRequests.get());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "manufacturers").tag("result", "hit").functionCounter().count());
+    }
+
+    @Test
+    void manufacturer_404SeGuardaEnCacheNegativa() {
+        StepVerifier.create(cache.manufacturer(99L)).verifyComplete();
+        StepVerifier.create(cache.manufacturer(99L)).verifyComplete();
+
+        assertEquals(1, manufacturerRequests.get());
+    }
+
+    @Test
+    void ratings() {
+        StepVerifier.create(cache.ratings(1L))
+                .expectNextMatches(ratings -> ratings.size() == 1 && ratings.getFirst().rate() == 4.5)
+                .verifyComplete();
+    }
+
+    @Test
+    void ratings_sinValoracionesNoEsRespuestaNegativa() {
+        // caché negativa sin TTL: solo se vuelve a pedir el producto que responde 404
+        var cache = cache(Duration.ZERO);
+        for (int i = 0; i < 2; i++) {
+            StepVerifier.create(cache.ratings(2L)).expectNext(List.of()).verifyComplete();
+            StepVerifier.create(cache.ratings(99L)).expectNext(List.of()).verifyComplete();
+        }
+
+        assertEquals(3, ratingRequests.get());
+    }
+
+    @Test
+    void manufacturer_conLoaderSoloCargaLosQueNoEstanEnCache() {
+        StepVerifier.create(cache.manufacturer(1L)).expectNextCount(1).verifyComplete();
+
+        var loaded = new AtomicInteger();
+        Function<Long, Mono<Manufacturer>> loader = id -> {
+            loaded.incrementAndGet();
+            return Mono.just(Manufacturer.builder().id(id).name("Batch " + id).build());
+        };
+        StepVerifier.create(cache.manufacturer(1L, loader))
+                .expectNextMatches(m -> m.getName().equals("Manufacturer 1"))
+                .verifyComplete();
+        StepVerifier.create(cache.manufacturer(2L, loader))
+                .expectNextMatches(m -> m.getName().equals("Batch 2"))
+                .verifyComplete();
+        StepVerifier.create(cache.manufacturer(2L, loader)).expectNextCount(1).verifyComplete();
+
+        assertEquals(1, loaded.get());
+        assertEquals(1, manufacturerRequests.get());
+    }
+}
@@ -0,0 +1,130 @@
+package com.certidevs.service;
+
+import com.certidevs.config.HedgingPolicy;
+import com.certidevs.entity.Manufacturer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+    Test sin Spring: levanta un servidor HTTP local que simula el microservicio de fabricantes
+    y cuenta cuántas peticiones recibe
+ */
+class ManufacturerBatchLoaderTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicBoolean failing = new AtomicBoolean();
+    private final List<List<Long>> receivedIds = new CopyOnWriteArrayList<>();
+
+    private DisposableServer server;
+    private WebClient client;
+    private ManufacturerBatchLoader loader;
+
+    @BeforeEach
+    void setUp() {
+        server = HttpServer.create()
+                .port(0)
+                .route(routes -> routes.post("/manufacturers/search", (request, response) -> failing.get()
+                        ? request.receive().then(Mono.fromRunnable(requests::incrementAndGet)).then(response.status(500).send())
+                        : response.header("Content-Type", "application/json").sendString(request.receive().aggregate().asString().map(body -> {
+                            requests.incrementAndGet();
+                            try {
+                                List<Long> ids = Arrays.asList(mapper.readValue(body, Long[].class));
+                                receivedIds.add(ids);
+                                // el fabricante 99 no existe
+                                var manufacturers = ids.stream()
+                                        .filter(id -> id != 99L)
+                                        .map(id -> Manufacturer.builder().id(id).name("Manufacturer " + id).build())
+                                        .toList();
+                                return mapper.writeValueAsString(manufacturers);
+                            } catch (Exception e) {
+                                throw new IllegalStateException(e);
+                            }
+                        }))
+                ))
+                .bindNow();
+
+        client = WebClient.create("http://localhost:" + server.port());
+        loader = new ManufacturerBatchLoader(client);
+    }
+
+    @AfterEach
+    void tearDown() {
+        loader.close();
+        server.disposeNow();
+    }
+
+    @Test
+    void load_agrupaYDeduplicaIds() {
+        // 40 productos que comparten 4 fabricantes
+        var manufacturers = Flux.range(0, 40)
+                .map(i -> (long) (i % 4) + 1)
+                .flatMap(loader::load);
+
+        StepVerifier.create(manufacturers)
+                .expectNextCount(40)
+                .verifyComplete();
+
+        assertEquals(1, requests.get());
+        assertEquals(4, receivedIds.getFirst().size());
+    }
+
+    @Test
+    void load_respetaTamanoMaximoDeLote() {
+        var count = ManufacturerBatchLoader.MAX_BATCH_SIZE * 2;
+
+        StepVerifier.create(Flux.range(100, count).flatMap(i -> loader.load((long) i)))
+                .expectNextCount(count)
+                .verifyComplete();
+
+        assertTrue(requests.get() >= 2);
+        receivedIds.forEach(ids -> assertTrue(ids.size() <= ManufacturerBatchLoader.MAX_BATCH_SIZE));
+    }
+
+    @Test
+    void load_noExisteDevuelveVacio() {
+        StepVerifier.create(loader.load(99L))
+                .verifyComplete();
+
+        StepVerifier.create(loader.load(null))
+                .verifyComplete();
+    }
+
+    @Test
+    void load_loteFallidoNoSeGuardaComoRespuestaNegativa() {
+        var meterRegistry = new SimpleMeterRegistry();
+        var cache = new EnrichmentCache(client, client, HedgingPolicy.disabled("rating", meterRegistry), meterRegistry, 100,
+                Duration.ofMinutes(10), Duration.ofMinutes(5),
+                Duration.ofMinutes(10), Duration.ofMinutes(5),
+                Duration.ofMinutes(1));
+
+        failing.set(true);
+        StepVerifier.create(cache.manufacturer(1L, loader::load))
+                .verifyError();
+
+        // la siguiente consulta vuelve a pedirlo al microservicio
+        failing.set(false);
+        StepVerifier.create(cache.manufacturer(1L, loader::load))
+                .expectNextMatches(m -> m.getName().equals("Manufacturer 1"))
+                .verifyComplete();
+        assertEquals(2, requests.get());
+    }
+}
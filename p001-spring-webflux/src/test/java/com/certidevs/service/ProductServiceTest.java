@@ -12,9 +12,12 @@ import org.springframework.boot.test.autoconfigure.data.r2dbc.DataR2dbcTest;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.context.annotation.Import;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -30,6 +33,12 @@ class ProductServiceTest {
     @Autowired
     private ProductService productService; // SUT
 
+    @Autowired
+    private StockReservationBuffer stockReservationBuffer;
+
+    @Autowired
+    private LowStockIndex lowStockIndex;
+
     Manufacturer manufacturer;
     Product product1;
     Product product2;
@@ -103,4 +112,164 @@ class ProductServiceTest {
                 .expectError(IllegalArgumentException.class)
                 .verify();
     }
-}
\ No newline at end of file
+
+    @Test
+    void findAllWithManufacturerAndRatings_marcaLoQueNoLlega() {
+        // los microservicios de manufacturer y ratings no están disponibles en los tests:
+        // se devuelven igualmente todos los productos dentro del plazo, marcando los datos que faltan
+        productService.findAllWithManufacturerAndRatings()
+                .as(StepVerifier::create)
+                .recordWith(ArrayList::new)
+                .expectNextCount(3)
+                .consumeRecordedWith(products -> products.forEach(p -> {
+                    assertNull(p.getManufacturer());
+                    assertTrue(p.getMissing().contains("ratings"));
+                }))
+                .expectComplete()
+                .verify(Duration.ofSeconds(5));
+    }
+
+    @Test
+    void increasePriceOfActiveProducts() {
+        productService.increasePriceOfActiveProducts(10.0)
+                .as(StepVerifier::create)
+                .expectNextMatches(p -> p.getId().equals(product1.getId()) && p.getPrice() == 11.0)
+                .expectNextMatches(p -> p.getId().equals(product3.getId()) && p.getPrice() == 33.0)
+                .verifyComplete();
+
+        // product2 no está activo
+        productRepository.findById(product2.getId())
+                .as(StepVerifier::create)
+                .expectNextMatches(p -> p.getPrice() == 20.0)
+                .verifyComplete();
+    }
+
+    @Test
+    void increasePriceOfActiveProductsCount() {
+        productService.increasePriceOfActiveProductsCount(50.0)
+                .as(StepVerifier::create)
+                .expectNext(2)
+                .verifyComplete();
+
+        productService.increasePriceOfActiveProductsChunked(100.0, 1)
+                .as(StepVerifier::create)
+                .expectNext(2)
+                .verifyComplete();
+
+        productRepository.findById(product1.getId())
+                .as(StepVerifier::create)
+                .expectNextMatches(p -> p.getPrice() == 30.0)
+                .verifyComplete();
+
+        // un solo rango: el fin del rango no se desborda
+        productService.increasePriceOfActiveProductsChunked(0.0, Long.MAX_VALUE)
+                .as(StepVerifier::create)
+                .expectNext(2)
+                .verifyComplete();
+
+        productService.increasePriceOfActiveProductsChunked(10.0, 0)
+                .as(StepVerifier::create)
+                .verifyError(IllegalArgumentException.class);
+    }
+
+    @Test
+    void reduceQuantity_concurrenteNoVendeMasDeLoQueHay() {
+        // product1 tiene 50 unidades y 1000 pedidos de 1 unidad en paralelo
+        long sold = Flux.range(0, 1000)
+                .flatMap(i -> productService.reduceQuantity(product1.getId(), 1)
+                        .map(p -> true)
+                        .onErrorResume(IllegalArgumentException.class, e -> Mono.just(false)), 1000)
+                .filter(ok -> ok)
+                .count()
+                .block();
+
+        assertEquals(50, sold);
+        productRepository.findById(product1.getId())
+                .as(StepVerifier::create)
+                .expectNextMatches(p -> p.getQuantity() == 0)
+                .verifyComplete();
+    }
+
+    @Test
+    void stockReservationBuffer_concurrenteNoVendeMasDeLoQueHay() {
+        long sold = Flux.range(0, 1000)
+                .flatMap(i -> stockReservationBuffer.reserve(product1.getId(), 1), 1000)
+                .filter(ok -> ok)
+                .count()
+                .block();
+
+        assertEquals(50, sold);
+        stockReservationBuffer.flush(true).block();
+        productRepository.findById(product1.getId())
+                .as(StepVerifier::create)
+                .expectNextMatches(p -> p.getQuantity() == 0)
+                .verifyComplete();
+    }
+
+    @Test
+    void stockReservationBuffer_devuelveStockNoUsado() {
+        stockReservationBuffer.reserve(product2.getId(), 1)
+                .as(StepVerifier::create)
+                .expectNext(true)
+                .verifyComplete();
+
+        stockReservationBuffer.flush(true).block();
+        productRepository.findById(product2.getId())
+                .as(StepVerifier::create)
+                .expectNextMatches(p -> p.getQuantity() == 4)
+                .verifyComplete();
+        assertEquals(0, stockReservationBuffer.leaseCount());
+
+        // un id que no existe no crea lease
+        stockReservationBuffer.reserve(Long.MAX_VALUE, 1)
+                .as(StepVerifier::create)
+                .expectNext(false)
+                .verifyComplete();
+        assertEquals(0, stockReservationBuffer.leaseCount());
+    }
+
+    @Test
+    void stockReservationBuffer_lecturasYUpdateCuentanLoReservado() {
+        // reserva 1 + lote de 10 en base de datos: quedan 39 en la tabla y 10 en memoria
+        stockReservationBuffer.reserve(product1.getId(), 1).block();
+        productRepository.findById(product1.getId())
+                .as(StepVerifier::create)
+                .expectNextMatches(p -> p.getQuantity() == 39)
+                .verifyComplete();
+        productService.findById(product1.getId())
+                .as(StepVerifier::create)
+                .expectNextMatches(p -> p.getQuantity() == 49)
+                .verifyComplete();
+
+        // la cantidad nueva no se incrementa después con lo que quedaba reservado
+        productService.update(product1.getId(), Product.builder().price(10.0).quantity(20).build())
+                .as(StepVerifier::create)
+                .expectNextMatches(p -> p.getQuantity() == 20)
+                .verifyComplete();
+        stockReservationBuffer.flush(true).block();
+        productRepository.findById(product1.getId())
+                .as(StepVerifier::create)
+                .expectNextMatches(p -> p.getQuantity() == 20)
+                .verifyComplete();
+    }
+
+    @Test
+    void lowStock_enviaLosQueYaEstanBajosYLosQueBajanDelUmbral() {
+        // los productos de setUp se guardan con el repositorio, sin pasar por ProductService
+        lowStockIndex.loadNew().block();
+
+        productService.lowStock(10)
+                .as(StepVerifier::create)
+                .recordWith(ArrayList::new)
+                .expectNextCount(2) // product2 (5) y product3 (1)
+                .consumeRecordedWith(products -> assertTrue(products.stream()
+                        .allMatch(p -> p.getQuantity() < 10)))
+                .then(() -> productService.reduceQuantity(product1.getId(), 45).block())
+                .expectNextMatches(p -> p.getId().equals(product1.getId()) && p.getQuantity() == 5)
+                // product1 ya está por debajo, no se repite
+                .then(() -> productService.reduceQuantity(product1.getId(), 1).block())
+                .expectNoEvent(Duration.ofMillis(200))
+                .thenCancel()
+                .verify(Duration.ofSeconds(5));
+    }
+}
@@ -0,0 +1,59 @@
+package com.certidevs.service;
+
+import com.certidevs.entity.Product;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+    Test sin Spring de las invalidaciones del índice de versiones
+ */
+class ProductVersionIndexTest {
+
+    private final ProductVersionIndex index = new ProductVersionIndex(1000);
+
+    private static Product product(long id, long version) {
+        return Product.builder().id(id).version(version).build();
+    }
+
+    @Test
+    void record_lecturaAnteriorAInvalidarNoSeGuarda() {
+        long readEpoch = index.epoch();
+        index.invalidate(1L);
+
+        index.record(product(1, 1), readEpoch);
+
+        assertNull(index.get(1L));
+    }
+
+    @Test
+    void record_invalidarOtroProductoNoDescartaLaLectura() {
+        long readEpoch = index.epoch();
+        index.invalidate(2L);
+
+        index.record(product(1, 1), readEpoch);
+
+        assertEquals(1, index.get(1L).version());
+    }
+
+    @Test
+    void record_noSustituyePorVersionAnterior() {
+        index.record(product(1, 2), index.epoch());
+        index.record(product(1, 1), index.epoch());
+
+        assertEquals(2, index.get(1L).version());
+    }
+
+    @Test
+    void invalidateAll_descartaLecturasEmpezadasAntes() {
+        index.record(product(1, 1), index.epoch());
+        long readEpoch = index.epoch();
+        index.invalidateAll();
+
+        assertNull(index.get(1L));
+        index.record(product(2, 1), readEpoch);
+        assertNull(index.get(2L));
+        index.record(product(2, 1), index.epoch());
+        assertEquals(1, index.get(2L).version());
+    }
+}
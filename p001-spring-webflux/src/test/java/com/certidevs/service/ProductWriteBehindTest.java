@@ -0,0 +1,159 @@
+package com.certidevs.service;
+
+import com.certidevs.entity.Product;
+import com.certidevs.repository.ProductRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+    Escritura diferida con flush manual: el flush por tiempo se retrasa una hora para que el test controle cuándo se escribe
+ */
+@SpringBootTest(properties = {
+        "products.write-behind.enabled=true",
+        "products.write-behind.flush-interval=1h"
+})
+class ProductWriteBehindTest {
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductWriteBehind productWriteBehind;
+
+    Product product1;
+
+    @BeforeEach
+    void setUp() {
+        product1 = productRepository.save(Product.builder()
+                .title("Product 1")
+                .price(10.0)
+                .quantity(50)
+                .active(true)
+                .creationDate(LocalDateTime.now().minusDays(10))
+                .build()).block();
+    }
+
+    @AfterEach
+    void tearDown() {
+        productWriteBehind.flush().then(productRepository.deleteAll()).block();
+    }
+
+    @Test
+    void update_variasModificacionesDelMismoIdSeUnenEnUnUpdate() {
+        Long id = product1.getId();
+        productService.update(id, Product.builder().price(11.0).quantity(40).build(), WriteDurability.MEMORY).block();
+        productService.update(id, Product.builder().price(12.0).quantity(30).build(), WriteDurability.MEMORY).block();
+        Mono<Product> flushed = productService.update(id, Product.builder().price(13.0).quantity(20).build(), WriteDurability.FLUSHED)
+                .cache();
+        flushed.subscribe();
+
+        // todavía en memoria
+        assertEquals(10.0, productRepository.findById(id).block().getPrice());
+
+        productWriteBehind.flush().block();
+
+        StepVerifier.create(flushed)
+                .expectNextMatches(p -> p.getPrice() == 13.0 && p.getQuantity() == 20
+                        // un solo UPDATE para las tres modificaciones
+                        && p.getVersion() == product1.getVersion() + 1)
+                .verifyComplete();
+    }
+
+    @Test
+    void update_syncConModificacionEnColaPasaPorLaCola() {
+        Long id = product1.getId();
+        productService.update(id, Product.builder().price(11.0).quantity(40).build(), WriteDurability.MEMORY).block();
+        Mono<Product> sync = productService.update(id, Product.builder().price(12.0).quantity(30).build()).cache();
+        sync.subscribe();
+
+        // escrita directamente, el flush la sobrescribiría con 11.0
+        assertTrue(productWriteBehind.isPending(id));
+        assertEquals(10.0, productRepository.findById(id).block().getPrice());
+
+        productWriteBehind.flush().block();
+
+        StepVerifier.create(sync)
+                .expectNextMatches(p -> p.getPrice() == 12.0)
+                .verifyComplete();
+        assertFalse(productWriteBehind.isPending(id));
+        assertEquals(12.0, productRepository.findById(id).block().getPrice());
+    }
+
+    @Test
+    void update_idQueNoExisteDevuelveVacio() {
+        Mono<Product> flushed = productService.update(999_999L, Product.builder().price(1.0).quantity(1).build(), WriteDurability.FLUSHED)
+                .cache();
+        flushed.subscribe();
+        productWriteBehind.flush().block();
+
+        StepVerifier.create(flushed).verifyComplete();
+    }
+
+    @Test
+    void save_loteConTituloDuplicadoSoloFallaEseProducto() {
+        Mono<Product> ok = productService.save(Product.builder().title("Product 2").price(20.0).quantity(5).build(), WriteDurability.FLUSHED)
+                .cache();
+        Mono<Product> duplicated = productService.save(Product.builder().title("Product 1").price(20.0).quantity(5).build(), WriteDurability.FLUSHED)
+                .cache();
+        ok.subscribe(p -> {}, e -> {});
+        duplicated.subscribe(p -> {}, e -> {});
+
+        productWriteBehind.flush().block();
+
+        StepVerifier.create(ok)
+                .expectNextMatches(p -> p.getId() != null && p.getActive() && p.getCreationDate() != null)
+                .verifyComplete();
+        StepVerifier.create(duplicated).verifyError(DataIntegrityViolationException.class);
+    }
+
+    @Test
+    void save_conIdYVersionEnElCuerpoEsUnAlta() {
+        Mono<Product> flushed = productService.save(Product.builder().id(product1.getId()).version(3L)
+                        .title("Product 2").price(20.0).quantity(5).build(), WriteDurability.FLUSHED)
+                .cache();
+        flushed.subscribe(p -> {}, e -> {});
+
+        productWriteBehind.flush().block();
+
+        StepVerifier.create(flushed)
+                .expectNextMatches(p -> !p.getId().equals(product1.getId()) && p.getVersion() == 0
+                        && p.getLastModified() != null)
+                .verifyComplete();
+        assertEquals("Product 1", productRepository.findById(product1.getId()).block().getTitle());
+    }
+
+    @Test
+    void save_syncConVersionEnElCuerpoEsUnAlta() {
+        StepVerifier.create(productService.save(Product.builder().version(3L)
+                        .title("Product 2").price(20.0).quantity(5).build(), WriteDurability.SYNC))
+                .expectNextMatches(p -> p.getId() != null && p.getVersion() == 0)
+                .verifyComplete();
+    }
+
+    @Test
+    void save_memoryConfirmaAntesDeEscribir() {
+        StepVerifier.create(productService.save(Product.builder().title("Product 2").price(20.0).quantity(5).build(), WriteDurability.MEMORY))
+                .expectNextMatches(p -> p.getId() == null)
+                .verifyComplete();
+        StepVerifier.create(productRepository.findByTitle("Product 2")).verifyComplete();
+
+        productWriteBehind.flush().block();
+
+        StepVerifier.create(productRepository.findByTitle("Product 2"))
+                .expectNextMatches(p -> p.getId() != null)
+                .verifyComplete();
+    }
+}
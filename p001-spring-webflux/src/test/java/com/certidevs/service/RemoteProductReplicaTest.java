@@ -0,0 +1,121 @@
+package com.certidevs.service;
+
+import com.certidevs.dto.ProductInvalidation;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+    Test sin Spring: servidor HTTP local que simula el servicio remoto de productos
+ */
+class RemoteProductReplicaTest {
+
+    private final AtomicInteger productRequests = new AtomicInteger();
+    private final Sinks.Many<String> events = Sinks.many().multicast().onBackpressureBuffer();
+    private volatile double price = 10.0;
+
+    private DisposableServer server;
+    private RemoteProductReplica replica;
+
+    @BeforeEach
+    void setUp() {
+        server = HttpServer.create()
+                .port(0)
+                .route(routes -> routes
+                        .get("/products/dump", (request, response) -> response.header("Content-Type", "application/x-ndjson")
+                                .sendString(Flux.range(1, 3).map(id -> json(id) + "\n")))
+                        .get("/products/events", (request, response) -> response.header("Content-Type", "text/event-stream")
+                                .sendString(events.asFlux().map(event -> "data:" + event + "\n\n")))
+                        .get("/products/{id}", (request, response) -> {
+                            productRequests.incrementAndGet();
+                            long id = Long.parseLong(request.param("id"));
+                            if (id == 99)
+                                return response.status(404).send();
+                            return response.header("Content-Type", "application/json").sendString(Mono.just(json(id)));
+                        }))
+                .bindNow();
+
+        replica = new RemoteProductReplica(WebClient.create("http://localhost:" + server.port()),
+                JsonMapper.builder().findAndAddModules().build(), new SimpleMeterRegistry(),
+                DataSize.ofMegabytes(1), Duration.ofMinutes(10), true, true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        replica.close();
+        server.disposeNow();
+    }
+
+    @Test
+    void findById_segundaLecturaEsLocal() {
+        StepVerifier.create(replica.findById(1L))
+                .expectNextMatches(p -> p.getTitle().equals("Product 1") && p.getPrice() == 10.0)
+                .verifyComplete();
+        StepVerifier.create(replica.findById(1L))
+                .expectNextMatches(p -> p.getTitle().equals("Product 1"))
+                .verifyComplete();
+
+        assertEquals(1, productRequests.get());
+    }
+
+    @Test
+    void findById_404Vacio() {
+        StepVerifier.create(replica.findById(99L)).verifyComplete();
+    }
+
+    @Test
+    void warmUp_cargaElVolcadoSinLecturasRemotas() {
+        StepVerifier.create(replica.warmUp()).expectNext(3L).verifyComplete();
+
+        StepVerifier.create(Flux.range(1, 3).concatMap(id -> replica.findById(id.longValue())))
+                .expectNextCount(3)
+                .verifyComplete();
+        assertEquals(0, productRequests.get());
+    }
+
+    @Test
+    void apply_invalidacionVuelveALeerDelRemoto() {
+        replica.findById(1L).block();
+        price = 12.0;
+
+        replica.apply(new ProductInvalidation(1L));
+
+        StepVerifier.create(replica.findById(1L))
+                .expectNextMatches(p -> p.getPrice() == 12.0)
+                .verifyComplete();
+        assertEquals(2, productRequests.get());
+    }
+
+    @Test
+    void start_aplicaLosEventosDelStream() throws InterruptedException {
+        replica.start();
+        StepVerifier.create(replica.findById(2L)).expectNextCount(1).verifyComplete();
+        assertTrue(replica.size() >= 1);
+
+        // el stream puede tardar en conectar: se reenvía hasta que se aplica
+        for (int i = 0; i < 50 && replica.size() > 0; i++) {
+            events.tryEmitNext("{}");
+            Thread.sleep(50);
+        }
+        assertEquals(0, replica.size());
+    }
+
+    private String json(long id) {
+        return "{\"id\":" + id + ",\"title\":\"Product " + id + "\",\"price\":" + price + ",\"quantity\":5,\"active\":true}";
+    }
+}
@@ -0,0 +1,81 @@
+package com.certidevs.service;
+
+import com.certidevs.dto.ProductSearchHit;
+import com.certidevs.entity.Product;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+    Test sin Spring: el índice se alimenta con record/remove, sin cargar desde base de datos
+ */
+class TitleSearchIndexTest {
+
+    private final TitleSearchIndex index = new TitleSearchIndex(null, 1000);
+
+    private void record(long id, String title) {
+        index.record(Product.builder().id(id).title(title).build());
+    }
+
+    private List<Long> ids(String query, int limit) {
+        return index.search(query, limit).stream().map(ProductSearchHit::id).toList();
+    }
+
+    @Test
+    void search_unTerminoConEmpateDevuelveLosMenoresIds() {
+        for (long id : new long[]{100, 3, 64, 17, 5})
+            record(id, "Teclado");
+
+        assertEquals(List.of(3L, 5L), ids("teclado", 2));
+    }
+
+    @Test
+    void search_exactaAntesQuePrefijoYErrata() {
+        record(1, "Teclado mecánico");
+        record(2, "Teclados inalámbricos");
+        record(3, "Tecldo de membrana");
+        record(4, "Ratón óptico");
+
+        List<ProductSearchHit> hits = index.search("teclado", 10);
+
+        assertEquals(List.of(1L, 2L, 3L), hits.stream().map(ProductSearchHit::id).toList());
+        assertEquals(List.of(TitleSearchIndex.EXACT, TitleSearchIndex.PREFIX, TitleSearchIndex.FUZZY),
+                hits.stream().map(ProductSearchHit::score).toList());
+    }
+
+    @Test
+    void search_todasLasPalabrasSinTildesYTopK() {
+        record(1, "Teclado mecánico");
+        record(2, "Teclado de membrana");
+        record(3, "Ratón mecánico");
+        record(4, "Teclado mecánico compacto");
+
+        // misma puntuación y misma palabra del término más selectivo: menor id primero
+        assertEquals(List.of(1L, 4L), ids("MECANICO tec", 10));
+        assertEquals(List.of(1L), ids("mecanico tec", 1));
+        assertTrue(ids("teclado raton", 10).isEmpty());
+        assertTrue(ids("  ", 10).isEmpty());
+    }
+
+    @Test
+    void record_cambioDeTituloYRemove() {
+        record(1, "Teclado mecánico");
+        record(1, "Monitor curvo");
+
+        assertTrue(ids("teclado", 10).isEmpty());
+        assertEquals(List.of(1L), ids("monitor", 10));
+
+        index.remove(1L);
+        assertTrue(ids("monitor", 10).isEmpty());
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    void editDistance_cortaAlSuperarElMaximo() {
+        assertEquals(1, TitleSearchIndex.editDistance("teclado", "tecldo", 2));
+        assertEquals(2, TitleSearchIndex.editDistance("teclado", "tecaldo", 2));
+        assertEquals(2, TitleSearchIndex.editDistance("teclado", "monitor", 1));
+    }
+}